@@ -0,0 +1,219 @@
+package com.blink.chatservice.chat.archive;
+
+import com.blink.chatservice.chat.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold storage for messages past the retention window.
+// Each segment is one gzip NDJSON file in the "message_archive" GridFS bucket holding a contiguous,
+// _id-ordered run of one conversation's messages. Segment metadata carries the id range and count,
+// so paging can skip whole segments without downloading them.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageArchiveService {
+
+    public static final String BUCKET = "message_archive";
+
+    private static final String META_CONVERSATION = "metadata.conversationId";
+    private static final String META_FIRST_ID = "metadata.firstMessageId";
+    private static final String META_LAST_ID = "metadata.lastMessageId";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    private volatile GridFSBucket bucket;
+
+    // Messages must belong to one conversation and be sorted by _id ascending.
+    // Idempotent: a rerun after a failed delete sees the same messages again, so anything an existing
+    // segment already covers is skipped, and the segment id is derived from its id range so a repeat
+    // upload of the same range is rejected by the chunks index instead of stored twice.
+    public void writeSegment(String conversationId, List<Message> messages) {
+        List<Message> pending = withoutArchived(conversationId, messages);
+        if (pending.isEmpty()) return;
+        String firstId = pending.get(0).getId();
+        String lastId = pending.get(pending.size() - 1).getId();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            for (Message m : pending) {
+                gzip.write(objectMapper.writeValueAsBytes(m));
+                gzip.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode archive segment for " + conversationId, e);
+        }
+
+        Document metadata = new Document("conversationId", conversationId)
+                .append("firstMessageId", firstId)
+                .append("lastMessageId", lastId)
+                .append("count", pending.size());
+        String name = conversationId + "/" + firstId + "-" + lastId;
+        BsonString segmentId = new BsonString(name);
+        try {
+            upload(segmentId, name, bytes.toByteArray(), metadata);
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+            if (bucket().find(Filters.eq("_id", segmentId)).first() != null) {
+                log.debug("Archive segment {} already exists, skipping", name);
+                return;
+            }
+            // Chunks without a files document: an earlier upload died halfway. Clear them and retry once.
+            mongoTemplate.getCollection(BUCKET + ".chunks").deleteMany(Filters.eq("files_id", segmentId));
+            upload(segmentId, name, bytes.toByteArray(), metadata);
+        }
+        log.debug("Archived {} messages of conversation {} ({} bytes compressed)", pending.size(), conversationId, bytes.size());
+    }
+
+    private void upload(BsonString segmentId, String name, byte[] gzipped, Document metadata) {
+        bucket().uploadFromStream(segmentId, name + ".ndjson.gz", new ByteArrayInputStream(gzipped),
+                new GridFSUploadOptions().metadata(metadata));
+    }
+
+    private List<Message> withoutArchived(String conversationId, List<Message> messages) {
+        if (messages.isEmpty()) return messages;
+        String firstId = messages.get(0).getId();
+        String lastId = messages.get(messages.size() - 1).getId();
+        List<IdRange> covered = new ArrayList<>();
+        for (GridFSFile segment : bucket().find(Filters.and(Filters.eq(META_CONVERSATION, conversationId),
+                Filters.lte(META_FIRST_ID, lastId), Filters.gte(META_LAST_ID, firstId)))) {
+            Document meta = segment.getMetadata();
+            if (meta != null) covered.add(new IdRange(meta.getString("firstMessageId"), meta.getString("lastMessageId")));
+        }
+        if (covered.isEmpty()) return messages;
+        return messages.stream().filter(m -> covered.stream().noneMatch(r -> r.contains(m.getId()))).toList();
+    }
+
+    // Every archived message of the conversation, oldest segment first, one segment in memory at a time.
+    public void forEachSegment(String conversationId, SegmentVisitor visitor) throws IOException {
+        for (GridFSFile segment : bucket().find(Filters.eq(META_CONVERSATION, conversationId)).sort(Sorts.ascending(META_LAST_ID))) {
+            visitor.visit(readSegment(segment));
+        }
+    }
+
+    // Conversations with at least one archive segment.
+    public List<String> archivedConversationIds() {
+        return mongoTemplate.getCollection(BUCKET + ".files")
+                .distinct(META_CONVERSATION, String.class)
+                .into(new ArrayList<>());
+    }
+
+    @FunctionalInterface
+    public interface SegmentVisitor {
+        void visit(List<Message> messages) throws IOException;
+    }
+
+    private record IdRange(String first, String last) {
+        boolean contains(String id) {
+            return id.compareTo(first) >= 0 && id.compareTo(last) <= 0;
+        }
+    }
+
+    // Archived messages older than beforeMessageId (or the newest archived ones when null), newest first.
+    // ObjectId hex strings have a fixed width, so string ordering matches _id ordering.
+    public List<Message> readBefore(String conversationId, String beforeMessageId, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (limit <= 0) return result;
+        Bson filter = beforeMessageId == null
+                ? Filters.eq(META_CONVERSATION, conversationId)
+                : Filters.and(Filters.eq(META_CONVERSATION, conversationId), Filters.lt(META_FIRST_ID, beforeMessageId));
+
+        for (GridFSFile segment : bucket().find(filter).sort(Sorts.descending(META_LAST_ID))) {
+            List<Message> messages = readSegment(segment);
+            Collections.reverse(messages);
+            for (Message m : messages) {
+                if (beforeMessageId != null && m.getId().compareTo(beforeMessageId) >= 0) continue;
+                // Segments written before writes became idempotent may overlap; never emit an id twice.
+                if (!result.isEmpty() && m.getId().compareTo(result.get(result.size() - 1).getId()) >= 0) continue;
+                result.add(m);
+                if (result.size() >= limit) return result;
+            }
+        }
+        return result;
+    }
+
+    // Offset paging over the archive, newest first. Segments entirely inside the skipped range are
+    // never downloaded.
+    public List<Message> readPage(String conversationId, long skip, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (limit <= 0) return result;
+        long toSkip = skip;
+        for (GridFSFile segment : bucket().find(Filters.eq(META_CONVERSATION, conversationId)).sort(Sorts.descending(META_LAST_ID))) {
+            int count = segment.getMetadata() != null ? segment.getMetadata().getInteger("count", 0) : 0;
+            if (toSkip >= count) {
+                toSkip -= count;
+                continue;
+            }
+            List<Message> messages = readSegment(segment);
+            Collections.reverse(messages);
+            for (Message m : messages.subList((int) toSkip, messages.size())) {
+                result.add(m);
+                if (result.size() >= limit) return result;
+            }
+            toSkip = 0;
+        }
+        return result;
+    }
+
+    public long countArchived(String conversationId) {
+        long total = 0;
+        for (GridFSFile segment : bucket().find(Filters.eq(META_CONVERSATION, conversationId))) {
+            if (segment.getMetadata() != null) total += segment.getMetadata().getInteger("count", 0);
+        }
+        return total;
+    }
+
+    private List<Message> readSegment(GridFSFile segment) {
+        List<Message> messages = new ArrayList<>();
+        try (InputStream in = new GZIPInputStream(bucket().openDownloadStream(segment.getObjectId()));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) messages.add(objectMapper.readValue(line, Message.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + segment.getFilename(), e);
+        }
+        return messages;
+    }
+
+    // Created on first use so the bean can be built without a live database.
+    private GridFSBucket bucket() {
+        GridFSBucket b = bucket;
+        if (b == null) {
+            synchronized (this) {
+                if (bucket == null) bucket = GridFSBuckets.create(mongoTemplate.getDb(), BUCKET);
+                b = bucket;
+            }
+        }
+        return b;
+    }
+}
@@ -1,22 +1,118 @@
 package com.blink.chatservice.chat.cleanup;
 
-import com.blink.chatservice.chat.repository.MessageRepository;
-import lombok.RequiredArgsConstructor;
+import com.blink.chatservice.chat.archive.MessageArchiveService;
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
 
+// Moves messages past the retention window into the cold archive, then deletes them.
+// Work is done per conversation in _id-ordered chunks (conv_deleted_id_idx), and deletes are paced
+// to max-deletes-per-second so the nightly run no longer shows up as one big write spike.
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class MessageCleanupJob {
 
-    private final MessageRepository messageRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MessageArchiveService archiveService;
+    private final ConversationMembershipCache membershipCache;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final int maxDeletesPerSecond;
+    private final boolean archiveEnabled;
 
-    @Scheduled(cron = "0 0 2 * * *")
+    public MessageCleanupJob(MongoTemplate mongoTemplate,
+                             MessageArchiveService archiveService,
+                             ConversationMembershipCache membershipCache,
+                             @Value("${app.chat.retention.days:30}") int retentionDays,
+                             @Value("${app.chat.retention.chunk-size:1000}") int chunkSize,
+                             @Value("${app.chat.retention.max-deletes-per-second:2000}") int maxDeletesPerSecond,
+                             @Value("${app.chat.retention.archive-enabled:true}") boolean archiveEnabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.archiveService = archiveService;
+        this.membershipCache = membershipCache;
+        this.retentionDays = retentionDays;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxDeletesPerSecond = Math.max(1, maxDeletesPerSecond);
+        this.archiveEnabled = archiveEnabled;
+    }
+
+    @Scheduled(cron = "0 0 2 * * *", zone = "UTC")
     public void cleanup() {
-        LocalDateTime threshold = LocalDateTime.now(ZoneId.of("UTC")).minusDays(30);
-        messageRepository.deleteByCreatedAtBefore(threshold);
+        // _id embeds the insert time, so the cutoff is an _id range and never needs the createdAt index.
+        ObjectId cutoff = ObjectId.getSmallestWithDate(Date.from(Instant.now().minus(retentionDays, ChronoUnit.DAYS)));
+        List<String> conversationIds = mongoTemplate.findDistinct(
+                Query.query(Criteria.where("_id").lt(cutoff)), "conversationId", Message.class, String.class);
+
+        log.info("[Job] Retention run for {} conversations, cutoff {}", conversationIds.size(), cutoff.getDate());
+        long total = 0;
+        try {
+            if (archiveEnabled) markArchived(archiveService.archivedConversationIds());
+            for (String conversationId : conversationIds) {
+                total += retainConversation(conversationId, cutoff);
+            }
+            log.info("[Job] Retention run finished, {} messages archived and deleted", total);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("[Job] Retention run interrupted after {} messages", total);
+        } catch (Exception e) {
+            // Anything not yet deleted is still live and gets picked up by the next run.
+            log.error("[Job] Retention run failed after {} messages", total, e);
+        }
+    }
+
+    long retainConversation(String conversationId, ObjectId cutoff) throws InterruptedException {
+        long processed = 0;
+        while (true) {
+            long started = System.nanoTime();
+            Query chunkQuery = Query.query(Criteria.where("conversationId").is(conversationId).and("_id").lt(cutoff))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(chunkSize);
+            List<Message> chunk = mongoTemplate.find(chunkQuery, Message.class);
+            if (chunk.isEmpty()) return processed;
+
+            // Archive (and flag the conversation) before delete: if either fails nothing is removed.
+            if (archiveEnabled) {
+                archiveService.writeSegment(conversationId, chunk.stream().filter(m -> !m.isDeleted()).toList());
+                if (processed == 0) markArchived(List.of(conversationId));
+            }
+            List<String> ids = chunk.stream().map(Message::getId).toList();
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Message.class);
+            processed += chunk.size();
+
+            throttle(chunk.size(), System.nanoTime() - started);
+            if (chunk.size() < chunkSize) return processed;
+        }
+    }
+
+    // History reads only look at the archive for flagged conversations. Segments written before the
+    // flag existed are picked up by the first run that sees them; after that this finds nothing to change.
+    void markArchived(List<String> conversationIds) {
+        if (conversationIds.isEmpty()) return;
+        List<String> unflagged = mongoTemplate.findDistinct(Query.query(Criteria.where("_id").in(conversationIds)
+                .and("archived").ne(true)), "_id", Conversation.class, String.class);
+        if (unflagged.isEmpty()) return;
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(unflagged)), new Update().set("archived", true), Conversation.class);
+        unflagged.forEach(membershipCache::invalidate);
+    }
+
+    private void throttle(int deleted, long elapsedNanos) throws InterruptedException {
+        long budgetMs = deleted * 1000L / maxDeletesPerSecond;
+        long sleepMs = budgetMs - elapsedNanos / 1_000_000;
+        if (sleepMs > 0) Thread.sleep(sleepMs);
     }
 }
@@ -4,26 +4,45 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.blink.chatservice.chat.dto.ChatBootstrapResponse;
 import com.blink.chatservice.chat.dto.CreateGroupRequest;
+import com.blink.chatservice.chat.dto.CursorResponse;
 import com.blink.chatservice.chat.dto.DirectChatRequest;
+import com.blink.chatservice.chat.dto.EditMessageRequest;
 import com.blink.chatservice.chat.dto.PagedResponse;
 import com.blink.chatservice.chat.dto.SaveFileRequest;
 import com.blink.chatservice.chat.dto.SendEmailRequest;
 import com.blink.chatservice.chat.dto.SendMessageRequest;
+import com.blink.chatservice.chat.dto.SendMessagesRequest;
 import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.InboxEntry;
 import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.service.ChatBootstrapService;
 import com.blink.chatservice.chat.service.ChatService;
+import com.blink.chatservice.chat.service.ConversationExportService;
+import com.blink.chatservice.chat.service.InboxService;
+import com.blink.chatservice.chat.service.ReadReceiptService;
+import com.blink.chatservice.chat.service.UnreadCounterService;
+import com.blink.chatservice.websocket.dto.MarkReadRequest;
 import com.blink.chatservice.notification.service.EmailService;
 
 import jakarta.validation.Valid;
@@ -36,6 +55,12 @@ public class ChatController {
 
     private final ChatService chatService;
     private final EmailService emailService;
+    private final ConversationExportService exportService;
+    private final InboxService inboxService;
+    private final ChatBootstrapService bootstrapService;
+    private final ReadReceiptService readReceiptService;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationMembershipCache membershipCache;
 
     @PostMapping("/direct")
     public ResponseEntity<Conversation> createDirect(Authentication auth, @RequestBody DirectChatRequest request) {
@@ -55,18 +80,91 @@ public class ChatController {
         return ResponseEntity.ok(chatService.listConversationsForUser(auth.getName()));
     }
 
+    // Paginated conversation list backed by the per-user inbox projection.
+    @GetMapping("/inbox")
+    public ResponseEntity<CursorResponse<InboxEntry>> listInbox(Authentication auth,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "30") int size) {
+        return ResponseEntity.ok(inboxService.list(auth.getName(), cursor, size));
+    }
+
+    // Cold-start snapshot. Clients send the last ETag back in If-None-Match; unchanged state answers 304.
+    @GetMapping("/bootstrap")
+    public ResponseEntity<ChatBootstrapResponse> bootstrap(Authentication auth, WebRequest webRequest,
+                                                           @RequestParam(defaultValue = "20") int conversations,
+                                                           @RequestParam(defaultValue = "20") int messages) {
+        String etag = bootstrapService.etagFor(auth.getName(), conversations, messages);
+        if (webRequest.checkNotModified(etag)) return null;
+        ChatBootstrapResponse snapshot = bootstrapService.build(auth.getName(), conversations, messages);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(snapshot);
+    }
+
+    // conversationId -> unread count for every conversation with unread messages.
+    @GetMapping("/unread")
+    public ResponseEntity<Map<String, Long>> getUnreadCounts(Authentication auth) {
+        return ResponseEntity.ok(unreadCounterService.getUnreadCounts(auth.getName()));
+    }
+
+    // Marks everything up to messageId as read; returns what is still unread in the conversation.
+    @PostMapping("/{conversationId}/read")
+    public ResponseEntity<Map<String, Object>> markRead(Authentication auth, @PathVariable String conversationId, @RequestBody MarkReadRequest request) {
+        if (request == null || request.messageId() == null) return ResponseEntity.badRequest().build();
+        long unread = readReceiptService.markRead(conversationId, auth.getName(), request.messageId());
+        return ResponseEntity.ok(Map.of("conversationId", conversationId, "unreadCount", unread));
+    }
+
     @PostMapping("/{conversationId}/messages")
     public ResponseEntity<Message> sendMessage(Authentication auth, @PathVariable String conversationId, @RequestBody SendMessageRequest request) {
         if (request == null || request.body() == null || request.body().isBlank()) return ResponseEntity.badRequest().build();
         if (request.body().length() > 2000) return ResponseEntity.badRequest().build();
-        return ResponseEntity.ok(chatService.sendMessage(conversationId, auth.getName(), request.body().trim()));
+        return ResponseEntity.ok(chatService.sendMessage(conversationId, auth.getName(), request.body().trim(), request.clientMessageId()));
+    }
+
+    @PostMapping("/{conversationId}/messages:batch")
+    public ResponseEntity<List<Message>> sendMessages(Authentication auth, @PathVariable String conversationId, @RequestBody SendMessagesRequest request) {
+        if (request == null || request.bodies() == null || request.bodies().isEmpty()) return ResponseEntity.badRequest().build();
+        if (request.bodies().stream().anyMatch(b -> b == null || b.isBlank() || b.length() > 2000)) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(chatService.sendMessages(conversationId, auth.getName(), request.bodies()));
     }
 
     @GetMapping("/{conversationId}/messages")
-    public ResponseEntity<PagedResponse<Message>> getMessages(@PathVariable String conversationId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<PagedResponse<Message>> getMessages(Authentication auth, @PathVariable String conversationId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        assertMember(conversationId, auth.getName());
         return ResponseEntity.ok(PagedResponse.from(chatService.getMessages(conversationId, page, size)));
     }
 
+    // Keyset history: pass the previous response's nextCursor as `before` to scroll back,
+    // or as `after` to fetch newer messages. No params returns the latest page.
+    @GetMapping("/{conversationId}/messages/cursor")
+    public ResponseEntity<CursorResponse<Message>> getMessagesByCursor(Authentication auth,
+                                                                      @PathVariable String conversationId,
+                                                                      @RequestParam(required = false) String before,
+                                                                      @RequestParam(required = false) String after,
+                                                                      @RequestParam(defaultValue = "20") int size) {
+        if (before != null && after != null) return ResponseEntity.badRequest().build();
+        assertMember(conversationId, auth.getName());
+        var slice = after != null
+                ? chatService.getMessagesAfter(conversationId, CursorResponse.decode(after), size)
+                : chatService.getMessagesBefore(conversationId, CursorResponse.decode(before), size);
+        return ResponseEntity.ok(CursorResponse.from(slice, Message::getId));
+    }
+
+    @GetMapping("/{conversationId}/export")
+    public ResponseEntity<StreamingResponseBody> exportConversation(Authentication auth, @PathVariable String conversationId,
+                                                                    @RequestParam(defaultValue = "ndjson") String format) {
+        ConversationExportService.Format fmt = ConversationExportService.Format.parse(format);
+        exportService.assertCanExport(conversationId, auth.getName());
+
+        StreamingResponseBody body = out -> exportService.export(conversationId, fmt, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fmt.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"conversation-" + conversationId + "." + fmt.extension() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{conversationId}")
     public ResponseEntity<Conversation> getConversation(@PathVariable String conversationId) {
         return ResponseEntity.ok(chatService.getConversation(conversationId));
@@ -84,6 +182,22 @@ public class ChatController {
         return ResponseEntity.ok().build();
     }
 
+    @PatchMapping("/messages/{messageId}")
+    public ResponseEntity<Message> editMessage(Authentication auth, @PathVariable String messageId, @RequestBody EditMessageRequest request) {
+        if (request == null || request.body() == null || request.body().isBlank()) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(chatService.editMessage(messageId, auth.getName(), request.body()));
+    }
+
+    @PutMapping("/messages/{messageId}/reactions/{emoji}")
+    public ResponseEntity<Message> addReaction(Authentication auth, @PathVariable String messageId, @PathVariable String emoji) {
+        return ResponseEntity.ok(chatService.reactToMessage(messageId, auth.getName(), emoji, true));
+    }
+
+    @DeleteMapping("/messages/{messageId}/reactions/{emoji}")
+    public ResponseEntity<Message> removeReaction(Authentication auth, @PathVariable String messageId, @PathVariable String emoji) {
+        return ResponseEntity.ok(chatService.reactToMessage(messageId, auth.getName(), emoji, false));
+    }
+
     @PostMapping("/save-file")
     public ResponseEntity<Object> saveFile(Authentication auth, @RequestBody SaveFileRequest request) {
         if (request.fileName() == null || request.fileName().isBlank()) {
@@ -116,5 +230,9 @@ public class ChatController {
         
         return ResponseEntity.ok(Map.of("success", true));
     }
-}
 
+    // History reads go through the same local membership index as sends.
+    private void assertMember(String conversationId, String userId) {
+        if (!membershipCache.isMember(conversationId, userId)) throw new IllegalArgumentException("Unauthorized");
+    }
+}
@@ -0,0 +1,34 @@
+package com.blink.chatservice.chat.controller;
+
+import com.blink.chatservice.ai.model.AiAnalysisModels.SearchCriteria;
+import com.blink.chatservice.chat.dto.MessageSearchResponse;
+import com.blink.chatservice.chat.search.MessageSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/chat/search")
+@RequiredArgsConstructor
+@Tag(name = "Message Search", description = "Full-text search across the caller's conversations")
+public class MessageSearchController {
+
+    private final MessageSearchService messageSearchService;
+
+    @PostMapping
+    @Operation(
+            summary = "Search messages",
+            description = "Accepts the SearchCriteria returned by /api/v1/ai/analysis/search-query. " +
+                    "Results are ranked by text relevance, or newest first when no keywords are given."
+    )
+    public ResponseEntity<MessageSearchResponse> search(Authentication auth,
+                                                        @RequestBody SearchCriteria criteria,
+                                                        @RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "20") int size) {
+        if (criteria == null) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(messageSearchService.search(auth.getName(), criteria, page, size));
+    }
+}
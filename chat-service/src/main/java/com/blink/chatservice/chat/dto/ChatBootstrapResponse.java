@@ -0,0 +1,23 @@
+package com.blink.chatservice.chat.dto;
+
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.entity.Message;
+
+import java.util.List;
+import java.util.Map;
+
+// Everything the chat screen needs on cold start in one payload: the top inbox rows, the latest
+// messages of each, and summaries for the users those rows and messages refer to.
+public record ChatBootstrapResponse(
+        List<ConversationSnapshot> conversations,
+        Map<String, Map<String, Object>> users,
+        String nextInboxCursor
+) {
+
+    // messages are newest first; use the last one as `before` on /messages/cursor to scroll back.
+    public record ConversationSnapshot(
+            InboxEntry conversation,
+            List<Message> messages,
+            boolean hasMoreMessages
+    ) {}
+}
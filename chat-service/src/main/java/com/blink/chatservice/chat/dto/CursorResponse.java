@@ -0,0 +1,49 @@
+package com.blink.chatservice.chat.dto;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Keyset page: no totals on purpose, the client just follows nextCursor until hasNext is false.
+public record CursorResponse<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext,
+        int numberOfElements
+) {
+
+    public static <T> CursorResponse<T> from(Slice<T> slice, Function<T, String> idExtractor) {
+        List<T> content = slice.getContent();
+        String next = content.isEmpty() ? null : encode(idExtractor.apply(content.get(content.size() - 1)));
+        return new CursorResponse<>(content, next, slice.hasNext(), content.size());
+    }
+
+    public static String encode(String id) {
+        if (id == null) return null;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a cursor produced by encode() without interpreting it.
+    public static String decodeRaw(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Accepts either an opaque cursor or a raw message id so older clients can pass ids directly.
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String raw = cursor.trim();
+        if (ObjectId.isValid(raw)) return raw;
+        String id = decodeRaw(raw);
+        if (ObjectId.isValid(id)) return id;
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,3 @@
+package com.blink.chatservice.chat.dto;
+
+public record EditMessageRequest(String body) {}
@@ -0,0 +1,18 @@
+package com.blink.chatservice.chat.dto;
+
+import com.blink.chatservice.chat.entity.Message;
+
+import java.util.List;
+
+// Search results in rank order. Like keyset history, no total count is computed.
+public record MessageSearchResponse(
+        List<Message> content,
+        int page,
+        int size,
+        boolean hasNext
+) {
+
+    public static MessageSearchResponse empty(int page, int size) {
+        return new MessageSearchResponse(List.of(), page, size, false);
+    }
+}
@@ -1,3 +1,3 @@
 package com.blink.chatservice.chat.dto;
 
-public record SendMessageRequest(String body) {}
+public record SendMessageRequest(String body, String clientMessageId) {}
@@ -0,0 +1,5 @@
+package com.blink.chatservice.chat.dto;
+
+import java.util.List;
+
+public record SendMessagesRequest(List<String> bodies) {}
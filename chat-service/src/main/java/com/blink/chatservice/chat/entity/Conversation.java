@@ -38,6 +38,8 @@ public class Conversation {
     private Set<String> admins = new HashSet<>();
     private String lastMessagePreview;
     private LocalDateTime lastMessageAt;
+    // Set by the retention job once some of this conversation's messages live in the archive.
+    private boolean archived;
     private LocalDateTime createdAt = LocalDateTime.now(UTC);
     private LocalDateTime updatedAt = LocalDateTime.now(UTC);
 
@@ -0,0 +1,45 @@
+package com.blink.chatservice.chat.entity;
+
+import com.blink.chatservice.chat.model.ConversationType;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Denormalized per-user row for the conversation list. One document per (user, conversation),
+// so listing never touches participant sets and costs the same for a 2-person chat and a 5k group.
+@Getter
+@Setter
+@NoArgsConstructor
+@Document(collection = "inbox")
+@CompoundIndexes({
+    @CompoundIndex(name = "user_updated_id_idx", def = "{'userId': 1, 'updatedAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "conversation_idx", def = "{'conversationId': 1}")
+})
+public class InboxEntry {
+
+    // userId + ":" + conversationId, which makes every write an idempotent upsert.
+    @Id
+    private String id;
+    private String userId;
+    private String conversationId;
+    private ConversationType type;
+    private String title;
+    private String avatarUrl;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageAt;
+    private LocalDateTime updatedAt;
+    // Filled from Redis on read; see UnreadCounterService.
+    @Transient
+    private long unreadCount;
+
+    public static String idFor(String userId, String conversationId) {
+        return userId + ":" + conversationId;
+    }
+}
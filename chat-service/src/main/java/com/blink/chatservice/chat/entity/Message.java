@@ -5,15 +5,24 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
 
 @Document(collection = "messages")
 @CompoundIndexes({
     @CompoundIndex(name = "conv_deleted_created_idx", def = "{'conversationId': 1, 'deleted': 1, 'createdAt': -1}"),
-    @CompoundIndex(name = "created_at_idx", def = "{'createdAt': 1}")
+    // Backs keyset history paging: equality on conversationId/deleted, range + sort on _id.
+    @CompoundIndex(name = "conv_deleted_id_idx", def = "{'conversationId': 1, 'deleted': 1, '_id': -1}"),
+    @CompoundIndex(name = "created_at_idx", def = "{'createdAt': 1}"),
+    // Idempotent sends. Partial rather than sparse: senderId is always present, so a sparse compound
+    // index would still index (and collide on) every message without a clientMessageId.
+    @CompoundIndex(name = "sender_client_msg_idx", def = "{'senderId': 1, 'clientMessageId': 1}", unique = true,
+            partialFilter = "{ 'clientMessageId': { '$exists': true } }")
 })
 @Data
 public class Message {
@@ -27,10 +36,17 @@ public class Message {
     private String conversationId;
     private String senderId;
     private String recipientId;
+    // Backs /api/v1/chat/search; Mongo keeps the text index current on every insert/update.
+    @TextIndexed
     private String body;
+    private String clientMessageId;
     private LocalDateTime createdAt = LocalDateTime.now(UTC);
     private boolean seen = false;
     private boolean deleted = false;
+    private LocalDateTime editedAt;
+    // emoji -> ids of users who reacted, and emoji -> count; both maintained by one atomic update.
+    private Map<String, Set<String>> reactions;
+    private Map<String, Integer> reactionCounts;
 
     public LocalDateTime getCreatedAt() {
         return createdAt;
@@ -0,0 +1,46 @@
+package com.blink.chatservice.chat.fanout;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Single-threaded executors keyed by recipient. Every queued frame for a given user goes through the
+// same lane, so that user sees them in publish order while different users still fan out in parallel.
+public class FanoutLanes {
+
+    private final List<? extends Executor> lanes;
+
+    public FanoutLanes(List<? extends Executor> lanes) {
+        if (lanes.isEmpty()) throw new IllegalArgumentException("At least one fan-out lane required");
+        this.lanes = List.copyOf(lanes);
+    }
+
+    int size() {
+        return lanes.size();
+    }
+
+    int laneOf(String userId) {
+        return Math.floorMod(userId.hashCode(), lanes.size());
+    }
+
+    // Throws RejectedExecutionException when the lane is full or shut down; it never blocks the caller.
+    void execute(int lane, Runnable task) {
+        lanes.get(lane).execute(task);
+    }
+
+    // Tasks waiting across all lanes; 0 for executors that do not expose a queue.
+    int queued() {
+        int queued = 0;
+        for (Executor lane : lanes) {
+            if (lane instanceof ThreadPoolTaskExecutor executor) queued += executor.getQueueSize();
+        }
+        return queued;
+    }
+
+    public void shutdown() {
+        lanes.forEach(lane -> {
+            if (lane instanceof ThreadPoolTaskExecutor executor) executor.shutdown();
+        });
+    }
+}
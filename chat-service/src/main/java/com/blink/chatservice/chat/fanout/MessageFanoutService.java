@@ -0,0 +1,160 @@
+package com.blink.chatservice.chat.fanout;
+
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.websocket.service.PresenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Decides how a conversation event reaches its members.
+//   - Always one topic frame; the broker copies it to every subscriber of the conversation.
+//   - Direct chats and groups up to per-user-max-members also get per-user queue frames (inbox
+//     updates for members not viewing the conversation); group members only while online on any node.
+//   - Larger groups are topic-only; their members pick changes up from the inbox.
+// Per-user sends above inline-limit are batched onto FanoutLanes, off the calling thread. A recipient
+// always lands on the same lane, so one conversation's frames reach each member in publish order.
+@Slf4j
+@Component
+public class MessageFanoutService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
+    private final FanoutLanes lanes;
+    private final int perUserMaxMembers;
+    private final int inlineLimit;
+    private final int batchSize;
+
+    private final Timer topicTimer;
+    private final Timer perUserTimer;
+    private final Timer batchTimer;
+    private final DistributionSummary recipients;
+    private final Counter skippedOffline;
+    private final Counter shed;
+
+    public MessageFanoutService(SimpMessagingTemplate messagingTemplate,
+                                PresenceService presenceService,
+                                FanoutLanes lanes,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.chat.fanout.per-user-max-members:200}") int perUserMaxMembers,
+                                @Value("${app.chat.fanout.inline-limit:8}") int inlineLimit,
+                                @Value("${app.chat.fanout.batch-size:100}") int batchSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceService = presenceService;
+        this.lanes = lanes;
+        this.perUserMaxMembers = perUserMaxMembers;
+        this.inlineLimit = inlineLimit;
+        this.batchSize = Math.max(1, batchSize);
+
+        this.topicTimer = latencyTimer(meterRegistry, "topic");
+        this.perUserTimer = latencyTimer(meterRegistry, "per_user");
+        this.batchTimer = Timer.builder("chat.fanout.batch.latency")
+                .description("Time from enqueue to completion of one per-user delivery batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.recipients = DistributionSummary.builder("chat.fanout.recipients")
+                .description("Per-user frames sent per fan-out")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.skippedOffline = Counter.builder("chat.fanout.skipped.offline")
+                .description("Per-user frames not sent because the member is offline")
+                .register(meterRegistry);
+        this.shed = Counter.builder("chat.fanout.shed")
+                .description("Per-user frames dropped because their fan-out lane was full")
+                .register(meterRegistry);
+        Gauge.builder("chat.fanout.lane.depth", lanes, FanoutLanes::queued)
+                .description("Delivery batches waiting across all fan-out lanes")
+                .register(meterRegistry);
+    }
+
+    // The sender always gets its echo on userDestination so its other devices stay in sync.
+    public void publish(ConversationMembership membership, String senderId, String topicDestination,
+                        String userDestination, Object payload) {
+        long started = System.nanoTime();
+        messagingTemplate.convertAndSend(topicDestination, payload);
+        if (senderId != null) messagingTemplate.convertAndSendToUser(senderId, userDestination, payload);
+
+        if (!usesPerUserDelivery(membership)) {
+            topicTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        // Direct peers always get their frame, as before; group members only when online. Presence is
+        // global (Redis), so members connected to another replica are not dropped under a relay broker.
+        boolean direct = membership.type() == ConversationType.DIRECT;
+        Set<String> online = direct ? Set.of() : presenceService.onlineAmong(membership.participants());
+        List<String> targets = new ArrayList<>();
+        for (String userId : membership.participants()) {
+            if (userId.equals(senderId)) continue;
+            if (direct || online.contains(userId)) targets.add(userId);
+            else skippedOffline.increment();
+        }
+        sendToUsers(targets, userDestination, payload);
+        perUserTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // Small recipient lists go out inline; anything bigger is split by lane, then into batches per lane.
+    public void sendToUsers(Collection<String> userIds, String destination, Object payload) {
+        if (userIds.isEmpty()) return;
+        recipients.record(userIds.size());
+        if (userIds.size() <= inlineLimit) {
+            userIds.forEach(userId -> sendQuietly(userId, destination, payload));
+            return;
+        }
+
+        List<List<String>> byLane = new ArrayList<>(lanes.size());
+        for (int i = 0; i < lanes.size(); i++) byLane.add(new ArrayList<>());
+        userIds.forEach(userId -> byLane.get(lanes.laneOf(userId)).add(userId));
+
+        for (int lane = 0; lane < byLane.size(); lane++) {
+            List<String> share = byLane.get(lane);
+            for (int from = 0; from < share.size(); from += batchSize) {
+                List<String> batch = share.subList(from, Math.min(from + batchSize, share.size()));
+                long enqueued = System.nanoTime();
+                try {
+                    lanes.execute(lane, () -> {
+                        batch.forEach(userId -> sendQuietly(userId, destination, payload));
+                        batchTimer.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shedding keeps the caller (often the STOMP inbound thread) from waiting on a backed-up lane.
+                    shed.increment(batch.size());
+                    log.debug("Fan-out lane {} full, dropped {} frames for {}", lane, batch.size(), destination);
+                }
+            }
+        }
+    }
+
+    boolean usesPerUserDelivery(ConversationMembership membership) {
+        return membership.type() == ConversationType.DIRECT || membership.participants().size() <= perUserMaxMembers;
+    }
+
+    private void sendQuietly(String userId, String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(userId, destination, payload);
+        } catch (Exception e) {
+            log.debug("Fan-out to {} on {} failed: {}", userId, destination, e.getMessage());
+        }
+    }
+
+    private static Timer latencyTimer(MeterRegistry registry, String mode) {
+        return Timer.builder("chat.fanout.latency")
+                .description("Time spent in the sending thread per fan-out")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
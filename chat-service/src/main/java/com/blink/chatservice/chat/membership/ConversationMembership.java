@@ -0,0 +1,24 @@
+package com.blink.chatservice.chat.membership;
+
+import com.blink.chatservice.chat.model.ConversationType;
+
+import java.util.Optional;
+import java.util.Set;
+
+// Compact, immutable view of who is in a conversation. Enough for authorization and
+// direct-chat recipient resolution without loading the full Conversation document.
+// archived tells history reads whether there is anything in the cold archive to look at.
+public record ConversationMembership(ConversationType type, Set<String> participants, long loadedAtMs, boolean archived) {
+
+    public ConversationMembership(ConversationType type, Set<String> participants, long loadedAtMs) {
+        this(type, participants, loadedAtMs, false);
+    }
+
+    public boolean contains(String userId) {
+        return userId != null && participants.contains(userId);
+    }
+
+    public Optional<String> otherParticipant(String userId) {
+        return participants.stream().filter(id -> !id.equals(userId)).findFirst();
+    }
+}
@@ -0,0 +1,126 @@
+package com.blink.chatservice.chat.membership;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Local conversationId -> participants index used by the message hot path.
+// conversations_v2 is evicted on every send so it is almost always cold; this cache only changes
+// when membership changes, which is rare. Other replicas are told to drop their copy via Redis pub/sub.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationMembershipCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "chat:membership:invalidate";
+
+    // Upper bound on staleness if an invalidation message is ever lost (e.g. Redis blip).
+    private static final long ENTRY_TTL_MS = 10 * 60 * 1000L; // 10 minutes
+
+    // Hard cap so a burst of one-off conversations cannot grow the map unbounded.
+    private static final int MAX_ENTRIES = 20_000;
+
+    // Striped invalidation generations (power of two). A reader only installs what it loaded if its
+    // stripe has not been invalidated since it started, so an invalidation racing a load cannot put
+    // the pre-change participants back for a whole TTL. Sharing a stripe only costs a spurious miss.
+    private static final int GENERATION_STRIPES = 256;
+
+    private final ConversationRepository conversationRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ConcurrentHashMap<String, ConversationMembership> memberships = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    // Returns the cached membership, loading it once from Mongo on a miss.
+    public ConversationMembership get(String conversationId) {
+        if (conversationId == null) throw new IllegalArgumentException("Conversation not found");
+
+        ConversationMembership cached = memberships.get(conversationId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAtMs() < ENTRY_TTL_MS) return cached;
+
+        int stripe = stripe(conversationId);
+        long generation = generations.get(stripe);
+        Conversation conv = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new IllegalArgumentException("Conversation not found"));
+        ConversationMembership loaded = new ConversationMembership(
+                conv.getType(),
+                conv.getParticipants() != null ? Set.copyOf(conv.getParticipants()) : Set.of(),
+                System.currentTimeMillis(),
+                conv.isArchived());
+
+        if (memberships.size() >= MAX_ENTRIES) evictExpired();
+        // compute() serialises with discard(): either the bump is seen here, or the removal runs after us.
+        memberships.compute(conversationId, (id, current) -> generations.get(stripe) == generation ? loaded : current);
+        return loaded;
+    }
+
+    public boolean isMember(String conversationId, String userId) {
+        return get(conversationId).contains(userId);
+    }
+
+    // Drop the local entry and tell every other node to do the same.
+    public void invalidate(String conversationId) {
+        if (conversationId == null) return;
+        discard(conversationId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, conversationId);
+        } catch (Exception e) {
+            // Peers fall back to the TTL; this node is already consistent.
+            log.warn("Failed to publish membership invalidation for {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String conversationId = new String(message.getBody(), StandardCharsets.UTF_8);
+        discard(conversationId);
+    }
+
+    // Bump before removing so a load already in flight for this conversation will not install its result.
+    private void discard(String conversationId) {
+        generations.incrementAndGet(stripe(conversationId));
+        memberships.remove(conversationId);
+    }
+
+    private static int stripe(String conversationId) {
+        int h = conversationId.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    // Periodic sweep of expired entries. Runs every 5 minutes.
+    @Scheduled(fixedRate = 300_000)
+    public void evictExpired() {
+        if (memberships.isEmpty()) return;
+        long cutoff = System.currentTimeMillis() - ENTRY_TTL_MS;
+        memberships.values().removeIf(m -> m.loadedAtMs() < cutoff);
+        if (memberships.size() >= MAX_ENTRIES) {
+            log.warn("Membership cache still at capacity ({}) after sweep, clearing", MAX_ENTRIES);
+            memberships.clear();
+        }
+    }
+
+    // Current number of cached conversations. Exposed for testing.
+    public int size() {
+        return memberships.size();
+    }
+}
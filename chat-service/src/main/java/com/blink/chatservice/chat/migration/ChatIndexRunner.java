@@ -0,0 +1,83 @@
+package com.blink.chatservice.chat.migration;
+
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import com.blink.chatservice.chat.archive.MessageArchiveService;
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.entity.Message;
+
+// Prod runs with auto-index-creation disabled, so indexes added to chat collections after
+// they already existed have to be ensured explicitly.
+@Component
+@Profile("prod")
+public class ChatIndexRunner implements ApplicationRunner {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ChatIndexRunner.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public ChatIndexRunner(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            ensureIndexes();
+        } catch (Exception e) {
+            // Never crash the app because of an index build attempt.
+            log.error(
+                "Chat index creation failed; continuing startup. Cause: {}",
+                e.getMessage()
+            );
+        }
+    }
+
+    private void ensureIndexes() {
+        IndexOperations messageOps = mongoTemplate.indexOps(Message.class);
+
+        // Keyset history paging.
+        messageOps.ensureIndex(new CompoundIndexDefinition(
+                new Document("conversationId", 1).append("deleted", 1).append("_id", -1)
+        ).named("conv_deleted_id_idx"));
+
+        // Idempotent sends: unique per sender, only for messages that carry a clientMessageId.
+        messageOps.ensureIndex(new CompoundIndexDefinition(
+                new Document("senderId", 1).append("clientMessageId", 1)
+        ).named("sender_client_msg_idx").unique()
+                .partial(PartialIndexFilter.of(Criteria.where("clientMessageId").exists(true))));
+
+        // Message search. A collection can only have one text index.
+        messageOps.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .onField("body")
+                .named("body_text_idx")
+                .build());
+
+        IndexOperations inboxOps = mongoTemplate.indexOps(InboxEntry.class);
+        inboxOps.ensureIndex(new CompoundIndexDefinition(
+                new Document("userId", 1).append("updatedAt", -1).append("_id", -1)
+        ).named("user_updated_id_idx"));
+        inboxOps.ensureIndex(new CompoundIndexDefinition(
+                new Document("conversationId", 1)
+        ).named("conversation_idx"));
+
+        // Archive segment lookup by conversation, newest segment first.
+        mongoTemplate.getCollection(MessageArchiveService.BUCKET + ".files").createIndex(
+                new Document("metadata.conversationId", 1).append("metadata.lastMessageId", -1),
+                new IndexOptions().name("conv_last_id_idx"));
+    }
+}
@@ -12,6 +12,10 @@ public interface ConversationRepository extends MongoRepository<Conversation, St
     List<Conversation> findByParticipantsContainingOrderByUpdatedAtDesc(String userId);
     List<Conversation> findByParticipantsContainingAndType(String userId, ConversationType type);
 
+    // Lightweight projection: just ids and type, without participant sets.
+    @Query(value = "{ 'participants': ?0 }", fields = "{ '_id': 1, 'type': 1 }")
+    List<Conversation> findIdAndTypeByParticipant(String userId);
+
     @Query("{ 'type': ?0, 'participants': { $all: ?1, $size: 2 } }")
     Optional<Conversation> findDirectByParticipants(ConversationType type, List<String> users);
 }
@@ -3,11 +3,19 @@ package com.blink.chatservice.chat.repository;
 import com.blink.chatservice.chat.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+public interface MessageRepository extends MongoRepository<Message, String>, MessageRepositoryCustom {
+    Optional<Message> findBySenderIdAndClientMessageId(String senderId, String clientMessageId);
 
-public interface MessageRepository extends MongoRepository<Message, String> {
     Page<Message> findByConversationIdAndDeletedFalseOrderByIdDesc(String conversationId, Pageable pageable);
-    void deleteByCreatedAtBefore(LocalDateTime threshold);
+
+    // Keyset variants: Slice fetches size + 1 rows to compute hasNext and never issues a count().
+    Slice<Message> findSliceByConversationIdAndDeletedFalseOrderByIdDesc(String conversationId, Pageable pageable);
+    Slice<Message> findSliceByConversationIdAndDeletedFalseAndIdLessThanOrderByIdDesc(String conversationId, String beforeId, Pageable pageable);
+    Slice<Message> findSliceByConversationIdAndDeletedFalseAndIdGreaterThanOrderByIdAsc(String conversationId, String afterId, Pageable pageable);
 }
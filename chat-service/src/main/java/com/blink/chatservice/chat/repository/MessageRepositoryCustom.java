@@ -0,0 +1,17 @@
+package com.blink.chatservice.chat.repository;
+
+import com.blink.chatservice.chat.entity.Message;
+
+import java.time.LocalDateTime;
+
+// Single-document atomic updates that derived queries cannot express.
+public interface MessageRepositoryCustom {
+
+    // Atomic edit of a live message by its sender; null if no such message.
+    Message editBody(String messageId, String senderId, String body, LocalDateTime editedAt);
+
+    // Atomic add/remove of one user's reaction; null when nothing changed (already reacted / not reacted).
+    Message addReaction(String messageId, String userId, String emoji);
+
+    Message removeReaction(String messageId, String userId, String emoji);
+}
@@ -0,0 +1,45 @@
+package com.blink.chatservice.chat.repository;
+
+import com.blink.chatservice.chat.entity.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class MessageRepositoryCustomImpl implements MessageRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Message editBody(String messageId, String senderId, String body, LocalDateTime editedAt) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(messageId).and("senderId").is(senderId).and("deleted").is(false)),
+                new Update().set("body", body).set("editedAt", editedAt),
+                FindAndModifyOptions.options().returnNew(true),
+                Message.class);
+    }
+
+    // The set-membership condition in the filter is what makes $inc safe against double taps.
+    @Override
+    public Message addReaction(String messageId, String userId, String emoji) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(messageId).and("deleted").is(false).and("reactions." + emoji).ne(userId)),
+                new Update().addToSet("reactions." + emoji, userId).inc("reactionCounts." + emoji, 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Message.class);
+    }
+
+    @Override
+    public Message removeReaction(String messageId, String userId, String emoji) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(messageId).and("reactions." + emoji).is(userId)),
+                new Update().pull("reactions." + emoji, userId).inc("reactionCounts." + emoji, -1),
+                FindAndModifyOptions.options().returnNew(true),
+                Message.class);
+    }
+}
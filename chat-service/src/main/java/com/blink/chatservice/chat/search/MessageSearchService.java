@@ -0,0 +1,131 @@
+package com.blink.chatservice.chat.search;
+
+import com.blink.chatservice.ai.model.AiAnalysisModels.DateRange;
+import com.blink.chatservice.ai.model.AiAnalysisModels.SearchCriteria;
+import com.blink.chatservice.chat.dto.MessageSearchResponse;
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import com.blink.chatservice.user.entity.User;
+import com.blink.chatservice.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+// Server-side message search over the messages text index.
+// Takes the SearchCriteria produced by AiAnalysisService.extractSearchQuery as-is, scopes it to the
+// caller's own conversations and returns results ranked by text score (or newest first without keywords).
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_KEYWORDS = 10;
+    private static final DateTimeFormatter DD_MM_YYYY = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationRepository conversationRepository;
+    private final UserRepository userRepository;
+
+    public MessageSearchResponse search(String userId, SearchCriteria criteria, int page, int size) {
+        int safePage = Math.max(0, page);
+        int safeSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (criteria == null) throw new IllegalArgumentException("Search criteria required");
+
+        List<String> conversationIds = visibleConversationIds(userId, criteria.conversationType());
+        if (conversationIds.isEmpty()) return MessageSearchResponse.empty(safePage, safeSize);
+
+        Criteria filter = Criteria.where("conversationId").in(conversationIds).and("deleted").is(false);
+
+        List<String> userNames = clean(criteria.userNames());
+        if (!userNames.isEmpty()) {
+            List<String> senderIds = userRepository.findByUsernameIn(userNames).stream().map(User::getId).toList();
+            if (senderIds.isEmpty()) return MessageSearchResponse.empty(safePage, safeSize);
+            filter = filter.and("senderId").in(senderIds);
+        }
+
+        DateRange range = criteria.dateRange();
+        if (range != null) {
+            LocalDate from = parseDate(range.from());
+            LocalDate to = parseDate(range.to());
+            if (from != null || to != null) {
+                Criteria created = Criteria.where("createdAt");
+                if (from != null) created = created.gte(from.atStartOfDay());
+                if (to != null) created = created.lt(to.plusDays(1).atStartOfDay());
+                filter = filter.andOperator(created);
+            }
+        }
+
+        List<String> keywords = clean(criteria.keywords());
+        Query query;
+        if (keywords.isEmpty()) {
+            query = new Query(filter).with(Sort.by(Sort.Direction.DESC, "_id"));
+        } else {
+            TextCriteria text = TextCriteria.forDefaultLanguage()
+                    .matchingAny(keywords.stream().limit(MAX_KEYWORDS).toArray(String[]::new));
+            query = TextQuery.queryText(text).sortByScore().addCriteria(filter);
+        }
+        // Fetch one extra row to know whether another page exists without counting.
+        query.skip((long) safePage * safeSize).limit(safeSize + 1);
+
+        List<Message> rows = mongoTemplate.find(query, Message.class);
+        boolean hasNext = rows.size() > safeSize;
+        List<Message> content = hasNext ? rows.subList(0, safeSize) : rows;
+        return new MessageSearchResponse(content, safePage, safeSize, hasNext);
+    }
+
+    private List<String> visibleConversationIds(String userId, String conversationType) {
+        ConversationType type = parseType(conversationType);
+        return conversationRepository.findIdAndTypeByParticipant(userId).stream()
+                .filter(c -> type == null || c.getType() == type)
+                .map(Conversation::getId)
+                .toList();
+    }
+
+    private static ConversationType parseType(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        try {
+            return ConversationType.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring unknown conversation_type '{}' in search criteria", raw);
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        try {
+            return LocalDate.parse(raw.trim(), DD_MM_YYYY);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(raw.trim());
+            } catch (DateTimeParseException ignored) {
+                log.debug("Ignoring unparseable search date '{}'", raw);
+                return null;
+            }
+        }
+    }
+
+    private static List<String> clean(List<String> values) {
+        if (values == null) return List.of();
+        List<String> out = new ArrayList<>();
+        values.stream().filter(Objects::nonNull).map(String::trim).filter(v -> !v.isEmpty()).forEach(out::add);
+        return out;
+    }
+}
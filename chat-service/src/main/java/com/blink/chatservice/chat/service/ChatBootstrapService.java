@@ -0,0 +1,96 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.dto.ChatBootstrapResponse;
+import com.blink.chatservice.chat.dto.ChatBootstrapResponse.ConversationSnapshot;
+import com.blink.chatservice.chat.dto.CursorResponse;
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.mcp.tool.helper.UserLookupHelper;
+import com.blink.chatservice.user.entity.User;
+import com.blink.chatservice.user.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Builds the cold-start snapshot behind GET /api/v1/chat/bootstrap.
+// Server-side this is one inbox page, one keyset history read per conversation and one batched user
+// lookup, replacing the client's conversations -> conversation -> messages -> profiles waterfall.
+@Service
+@RequiredArgsConstructor
+public class ChatBootstrapService {
+
+    private static final int MAX_CONVERSATIONS = 50;
+    private static final int MAX_MESSAGES = 50;
+    private static final Set<String> USER_SUMMARY_FIELDS = Set.of("id", "username", "displayName");
+
+    private final InboxService inboxService;
+    private final ChatService chatService;
+    private final ConversationMembershipCache membershipCache;
+    private final UserLookupHelper userLookupHelper;
+    private final UnreadCounterService unreadCounterService;
+    private final UserService userService;
+    private final ConversationRevisionService revisionService;
+
+    public ChatBootstrapResponse build(String userId, int conversations, int messagesPerConversation) {
+        int m = Math.max(1, Math.min(conversations, MAX_CONVERSATIONS));
+        int k = Math.max(1, Math.min(messagesPerConversation, MAX_MESSAGES));
+
+        CursorResponse<InboxEntry> inbox = inboxService.list(userId, null, m);
+        List<ConversationSnapshot> snapshots = new ArrayList<>(inbox.content().size());
+        Set<String> userIds = new HashSet<>();
+
+        for (InboxEntry entry : inbox.content()) {
+            Slice<Message> latest = chatService.getMessagesBefore(entry.getConversationId(), null, k);
+            snapshots.add(new ConversationSnapshot(entry, latest.getContent(), latest.hasNext()));
+            latest.getContent().forEach(msg -> userIds.add(msg.getSenderId()));
+            // Direct chats are titled after the peer, who may not appear in the loaded messages.
+            if (entry.getType() == ConversationType.DIRECT) {
+                membershipCache.get(entry.getConversationId()).otherParticipant(userId).ifPresent(userIds::add);
+            }
+        }
+
+        return new ChatBootstrapResponse(snapshots, userSummaries(userIds), inbox.nextCursor());
+    }
+
+    // Weak ETag taken before anything is built, so an unchanged client costs two index reads, an HGETALL,
+    // an MGET and a cached profile instead of the whole snapshot. New messages, joins and leaves move the
+    // inbox version; reads move the unread counts; edits, deletes, reactions, group details and member
+    // profile changes move the revisions of the conversations the snapshot would cover. Presence is not
+    // part of the snapshot at all: it changes far too often and clients get it from the presence feed.
+    public String etagFor(String userId, int conversations, int messagesPerConversation) {
+        int m = Math.max(1, Math.min(conversations, MAX_CONVERSATIONS));
+        int k = Math.max(1, Math.min(messagesPerConversation, MAX_MESSAGES));
+        Map<String, Long> unread = new TreeMap<>(unreadCounterService.getUnreadCounts(userId));
+        User me = userService.getProfile(userId);
+        String revisions = revisionService.revisions(inboxService.recentConversationIds(userId, m));
+        String inputs = String.join("|", m + "x" + k, inboxService.version(userId), revisions, unread.toString(),
+                Integer.toString(Objects.hash(me.getUsername(), me.getAvatarUrl(), me.getBio())));
+        return "W/\"" + DigestUtils.md5DigestAsHex(inputs.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // Sorted maps keep the serialized form stable across requests and nodes.
+    private Map<String, Map<String, Object>> userSummaries(Set<String> userIds) {
+        userIds.remove(null);
+        Map<String, Map<String, Object>> summaries = new TreeMap<>();
+        userLookupHelper.getUserInfoBatch(userIds).forEach((id, info) -> {
+            Map<String, Object> summary = new TreeMap<>();
+            info.forEach((key, value) -> {
+                if (USER_SUMMARY_FIELDS.contains(key)) summary.put(key, value);
+            });
+            summaries.put(id, summary);
+        });
+        return summaries;
+    }
+}
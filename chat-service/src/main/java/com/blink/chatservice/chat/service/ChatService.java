@@ -3,6 +3,7 @@ package com.blink.chatservice.chat.service;
 import com.blink.chatservice.chat.entity.Conversation;
 import com.blink.chatservice.chat.entity.Message;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import java.util.List;
 import java.util.Set;
 
@@ -17,9 +18,17 @@ public interface ChatService {
     Conversation updateGroup(String groupId, String requesterId, String title, String avatarUrl);
     Conversation getConversation(String conversationId);
     Message sendMessage(String conversationId, String senderId, String body);
+
+    // Idempotent on (senderId, clientMessageId): a retry returns the original message instead of storing a copy.
+    Message sendMessage(String conversationId, String senderId, String body, String clientMessageId);
+    List<Message> sendMessages(String conversationId, String senderId, List<String> bodies);
     Page<Message> getMessages(String conversationId, int page, int size);
+    Slice<Message> getMessagesBefore(String conversationId, String beforeMessageId, int size);
+    Slice<Message> getMessagesAfter(String conversationId, String afterMessageId, int size);
     void deleteConversation(String conversationId, String userId);
     void leaveGroup(String groupId, String userId);
     Conversation createAiConversation(String userId);
     void deleteMessage(String messageId, String userId);
+    Message editMessage(String messageId, String userId, String body);
+    Message reactToMessage(String messageId, String userId, String emoji, boolean add);
 }
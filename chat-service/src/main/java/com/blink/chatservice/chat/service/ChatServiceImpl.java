@@ -1,18 +1,30 @@
 package com.blink.chatservice.chat.service;
 
+import com.blink.chatservice.chat.archive.MessageArchiveService;
 import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.fanout.MessageFanoutService;
 import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
 import com.blink.chatservice.chat.model.ConversationType;
 import com.blink.chatservice.chat.repository.ConversationRepository;
 import com.blink.chatservice.chat.repository.MessageRepository;
 import com.blink.chatservice.user.repository.UserRepository;
 import com.blink.chatservice.user.service.UserService;
+import com.blink.chatservice.websocket.dto.MessageDelta;
+import com.blink.chatservice.websocket.dto.RealtimeMessageBatchResponse;
+import com.blink.chatservice.websocket.dto.RealtimeMessageResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,15 +33,30 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChatServiceImpl implements ChatService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_BODY_LENGTH = 4000;
+    private static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+    private static final int MAX_EMOJI_LENGTH = 32;
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final UserService userService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationUpdateCoalescer conversationUpdateCoalescer;
+    private final ConversationMembershipCache membershipCache;
+    private final InboxService inboxService;
+    private final MessageArchiveService archiveService;
+    private final MessageDedupeCache dedupeCache;
+    private final MessageFanoutService fanoutService;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationRevisionService revisionService;
 
     @Tool(name = "createConversation", description = "Create a direct conversation with a user.")
     @Override
@@ -51,7 +78,10 @@ public class ChatServiceImpl implements ChatService {
                     conv.setCreatedAt(LocalDateTime.now(ZoneId.of("UTC")));
                     conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
                     Conversation saved = conversationRepository.save(conv);
-                    saved.getParticipants().forEach(uid -> messagingTemplate.convertAndSendToUser(uid, "/queue/conversations/new", saved));
+                    // Nothing is cached for a new id; this tells presence its members gained a peer.
+                    membershipCache.invalidate(saved.getId());
+                    inboxService.addParticipants(saved, saved.getParticipants());
+                    fanoutService.sendToUsers(saved.getParticipants(), "/queue/conversations/new", saved);
                     return saved;
                 });
     }
@@ -68,7 +98,10 @@ public class ChatServiceImpl implements ChatService {
         conv.setAdmins(new HashSet<>(Collections.singletonList(creatorId)));
         conv.setCreatedAt(LocalDateTime.now(ZoneId.of("UTC")));
         conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-        return conversationRepository.save(conv);
+        Conversation saved = conversationRepository.save(conv);
+        membershipCache.invalidate(saved.getId());
+        inboxService.addParticipants(saved, saved.getParticipants());
+        return saved;
     }
 
     @Override
@@ -91,7 +124,10 @@ public class ChatServiceImpl implements ChatService {
         if (participants.add(userId.trim())) {
             conv.setParticipants(participants);
             conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-            return conversationRepository.save(conv);
+            Conversation saved = conversationRepository.save(conv);
+            membershipCache.invalidate(groupId);
+            inboxService.addParticipants(saved, List.of(userId.trim()));
+            return saved;
         }
         return conv;
     }
@@ -110,7 +146,10 @@ public class ChatServiceImpl implements ChatService {
         conv.setParticipants(participants);
         if (conv.getAdmins() != null) conv.getAdmins().remove(userId);
         conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-        return conversationRepository.save(conv);
+        Conversation saved = conversationRepository.save(conv);
+        membershipCache.invalidate(groupId);
+        inboxService.removeParticipant(groupId, userId);
+        return saved;
     }
 
     @Override
@@ -124,7 +163,10 @@ public class ChatServiceImpl implements ChatService {
         if (avatarUrl != null) conv.setAvatarUrl(avatarUrl.isBlank() ? null : avatarUrl.trim());
         
         conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-        return conversationRepository.save(conv);
+        Conversation saved = conversationRepository.save(conv);
+        inboxService.updateDetails(saved);
+        revisionService.bump(groupId);
+        return saved;
     }
 
     @Tool(name = "getConversation", description = "Get details for a specific conversation.")
@@ -136,54 +178,186 @@ public class ChatServiceImpl implements ChatService {
 
     @Tool(name = "sendMessage", description = "Send a message to a conversation.")
     @Override
-    @Transactional
-    @CacheEvict(value = "conversations_v2", key = "#conversationId")
     public Message sendMessage(String conversationId, String senderId, String body) {
+        return sendMessage(conversationId, senderId, body, null);
+    }
+
+    // A single-document insert, so no transaction: the duplicate-key path below has to keep
+    // using the session after the failed insert.
+    @Override
+    public Message sendMessage(String conversationId, String senderId, String body, String clientMessageId) {
         if (body == null || body.isBlank()) throw new IllegalArgumentException("Body required");
-        
-        Conversation conv = conversationRepository.findById(conversationId).orElseThrow(() -> new IllegalArgumentException("Conversation not found"));
-        if (!conv.getParticipants().contains(senderId)) throw new IllegalArgumentException("Unauthorized");
+        if (clientMessageId != null && (clientMessageId.isBlank() || clientMessageId.length() > MAX_CLIENT_MESSAGE_ID_LENGTH)) {
+            throw new IllegalArgumentException("Invalid clientMessageId");
+        }
+
+        // Membership comes from the local index, so the hot path does no conversation read at all.
+        ConversationMembership membership = membershipCache.get(conversationId);
+        if (!membership.contains(senderId)) throw new IllegalArgumentException("Unauthorized");
+
+        if (clientMessageId != null) {
+            Optional<Message> previous = findRecentSend(senderId, clientMessageId);
+            if (previous.isPresent()) return acknowledgeRetry(conversationId, previous.get());
+        }
+
+        Message msg = newMessage(conversationId, senderId, membership, body, LocalDateTime.now(ZoneId.of("UTC")));
+        msg.setClientMessageId(clientMessageId);
+
+        Message saved;
+        try {
+            saved = messageRepository.save(msg);
+        } catch (DuplicateKeyException e) {
+            // A retry from outside the dedupe window, or one that raced the original insert.
+            if (clientMessageId == null) throw e;
+            return acknowledgeRetry(conversationId, messageRepository.findBySenderIdAndClientMessageId(senderId, clientMessageId).orElseThrow(() -> e));
+        }
+        if (clientMessageId != null) dedupeCache.remember(senderId, clientMessageId, saved.getId());
+        unreadCounterService.recordMessages(conversationId, membership, senderId, 1);
+        // Last-message fields are written behind in batches; the coalescer also evicts the cached conversation.
+        conversationUpdateCoalescer.recordMessage(conversationId, previewOf(saved.getBody()), saved.getCreatedAt());
+
+        broadcast(membership, saved);
+        return saved;
+    }
+
+    // Bulk variant for imports, bots and multi-part AI replies: one membership check, one ordered
+    // insertMany, one metadata update and one batch frame instead of N of each.
+    @Override
+    @Transactional
+    public List<Message> sendMessages(String conversationId, String senderId, List<String> bodies) {
+        if (bodies == null || bodies.isEmpty()) throw new IllegalArgumentException("Messages required");
+        if (bodies.size() > MAX_BATCH_SIZE) throw new IllegalArgumentException("Too many messages (max " + MAX_BATCH_SIZE + ")");
+        if (bodies.stream().anyMatch(b -> b == null || b.isBlank())) throw new IllegalArgumentException("Body required");
+
+        ConversationMembership membership = membershipCache.get(conversationId);
+        if (!membership.contains(senderId)) throw new IllegalArgumentException("Unauthorized");
+
+        // Spread timestamps by 1ms so createdAt order matches the submitted order.
+        LocalDateTime base = LocalDateTime.now(ZoneId.of("UTC"));
+        List<Message> batch = new ArrayList<>(bodies.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            batch.add(newMessage(conversationId, senderId, membership, bodies.get(i), base.plusNanos(i * 1_000_000L)));
+        }
+
+        List<Message> saved = messageRepository.insert(batch);
+        unreadCounterService.recordMessages(conversationId, membership, senderId, saved.size());
+        Message last = saved.get(saved.size() - 1);
+        conversationUpdateCoalescer.recordMessage(conversationId, previewOf(last.getBody()), last.getCreatedAt());
 
+        broadcastBatch(membership, conversationId, saved);
+        return saved;
+    }
+
+    private static Message newMessage(String conversationId, String senderId, ConversationMembership membership, String body, LocalDateTime createdAt) {
         Message msg = new Message();
         msg.setConversationId(conversationId);
         msg.setSenderId(senderId);
         String trimmedBody = body.trim();
-        msg.setBody(trimmedBody.length() > 4000 ? trimmedBody.substring(0, 4000) : trimmedBody);
-        msg.setCreatedAt(LocalDateTime.now(ZoneId.of("UTC")));
+        msg.setBody(trimmedBody.length() > MAX_BODY_LENGTH ? trimmedBody.substring(0, MAX_BODY_LENGTH) : trimmedBody);
+        msg.setCreatedAt(createdAt);
 
-        if (conv.getType() == ConversationType.DIRECT) {
-            conv.getParticipants().stream().filter(id -> !id.equals(senderId)).findFirst().ifPresent(msg::setRecipientId);
+        if (membership.type() == ConversationType.DIRECT) {
+            membership.otherParticipant(senderId).ifPresent(msg::setRecipientId);
         }
+        return msg;
+    }
 
-        Message saved = messageRepository.save(msg);
-        conv.setLastMessagePreview(msg.getBody().substring(0, Math.min(msg.getBody().length(), 100)));
-        conv.setLastMessageAt(saved.getCreatedAt());
-        conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-        conversationRepository.save(conv);
+    // Redis answers retries inside the dedupe window. Anything older is caught by the unique index on
+    // insert, so a first send costs no extra read.
+    private Optional<Message> findRecentSend(String senderId, String clientMessageId) {
+        String messageId = dedupeCache.find(senderId, clientMessageId);
+        return messageId != null ? messageRepository.findById(messageId) : Optional.empty();
+    }
 
-        broadcast(saved);
-        return saved;
+    // The original broadcast may be what the client missed, so the sender gets its copy again.
+    // The key is per sender, so a reused clientMessageId aimed at another conversation is rejected
+    // rather than acknowledged with a message from somewhere else.
+    private Message acknowledgeRetry(String conversationId, Message original) {
+        if (!conversationId.equals(original.getConversationId())) {
+            throw new IllegalArgumentException("clientMessageId already used in another conversation");
+        }
+        messagingTemplate.convertAndSendToUser(original.getSenderId(), "/queue/messages", toResponse(original));
+        return original;
     }
 
-    private void broadcast(Message msg) {
-        var resp = new com.blink.chatservice.websocket.dto.RealtimeMessageResponse(msg.getId(), msg.getConversationId(), msg.getSenderId(), msg.getRecipientId(), msg.getBody(), msg.getCreatedAt());
-        messagingTemplate.convertAndSend("/topic/conversations/" + msg.getConversationId(), resp);
-        if (msg.getRecipientId() != null) messagingTemplate.convertAndSendToUser(msg.getRecipientId(), "/queue/messages", resp);
-        messagingTemplate.convertAndSendToUser(msg.getSenderId(), "/queue/messages", resp);
+    private static String previewOf(String body) {
+        return body.substring(0, Math.min(body.length(), 100));
+    }
+
+    private static RealtimeMessageResponse toResponse(Message msg) {
+        return new RealtimeMessageResponse(msg.getId(), msg.getConversationId(), msg.getSenderId(), msg.getRecipientId(), msg.getBody(), msg.getCreatedAt(), msg.getClientMessageId());
+    }
+
+    private void broadcastBatch(ConversationMembership membership, String conversationId, List<Message> messages) {
+        var resp = new RealtimeMessageBatchResponse(conversationId, messages.stream().map(ChatServiceImpl::toResponse).toList());
+        fanoutService.publish(membership, messages.get(0).getSenderId(),
+                "/topic/conversations/" + conversationId + "/batch", "/queue/messages/batch", resp);
+    }
+
+    private void broadcast(ConversationMembership membership, Message msg) {
+        fanoutService.publish(membership, msg.getSenderId(),
+                "/topic/conversations/" + msg.getConversationId(), "/queue/messages", toResponse(msg));
     }
 
     @Override
     public Page<Message> getMessages(String conversationId, int page, int size) {
-        return messageRepository.findByConversationIdAndDeletedFalseOrderByIdDesc(conversationId, PageRequest.of(page, size));
+        PageRequest pageable = PageRequest.of(page, size);
+        Page<Message> live = messageRepository.findByConversationIdAndDeletedFalseOrderByIdDesc(conversationId, pageable);
+        // The flag rides on the cached membership, so conversations that were never archived skip GridFS entirely.
+        if (live.hasNext() || !membershipCache.get(conversationId).archived()) return live;
+
+        // Past the end of live history: continue into the archive as if it were the same collection.
+        long archived = archiveService.countArchived(conversationId);
+        if (archived == 0) return live;
+        List<Message> content = new ArrayList<>(live.getContent());
+        long archiveSkip = Math.max(0, pageable.getOffset() - live.getTotalElements());
+        content.addAll(archiveService.readPage(conversationId, archiveSkip, size - content.size()));
+        return new PageImpl<>(content, pageable, live.getTotalElements() + archived);
+    }
+
+    // Keyset paging on _id: every page is an index seek on conv_deleted_id_idx, no skip and no count,
+    // so scrolling deep into a long group costs the same as the first page.
+    @Override
+    public Slice<Message> getMessagesBefore(String conversationId, String beforeMessageId, int size) {
+        PageRequest limit = PageRequest.of(0, clampPageSize(size));
+        Slice<Message> live = beforeMessageId == null
+                ? messageRepository.findSliceByConversationIdAndDeletedFalseOrderByIdDesc(conversationId, limit)
+                : messageRepository.findSliceByConversationIdAndDeletedFalseAndIdLessThanOrderByIdDesc(conversationId, beforeMessageId, limit);
+        // The flag rides on the cached membership, so conversations that were never archived skip GridFS entirely.
+        if (live.hasNext() || !membershipCache.get(conversationId).archived()) return live;
+
+        // Live history is exhausted; older pages come from archive segments. One extra row tells us hasNext.
+        List<Message> content = new ArrayList<>(live.getContent());
+        String oldest = content.isEmpty() ? beforeMessageId : content.get(content.size() - 1).getId();
+        int missing = limit.getPageSize() - content.size();
+        List<Message> fromArchive = archiveService.readBefore(conversationId, oldest, missing + 1);
+        if (fromArchive.isEmpty()) return live;
+        boolean hasNext = fromArchive.size() > missing;
+        content.addAll(hasNext ? fromArchive.subList(0, missing) : fromArchive);
+        return new SliceImpl<>(content, limit, hasNext);
+    }
+
+    // Returns messages newer than the cursor, oldest first, so clients can catch up in order.
+    @Override
+    public Slice<Message> getMessagesAfter(String conversationId, String afterMessageId, int size) {
+        if (afterMessageId == null) throw new IllegalArgumentException("Cursor required");
+        return messageRepository.findSliceByConversationIdAndDeletedFalseAndIdGreaterThanOrderByIdAsc(
+                conversationId, afterMessageId, PageRequest.of(0, clampPageSize(size)));
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
     }
 
     @Override
     @Transactional
     @CacheEvict(value = "conversations_v2", key = "#conversationId")
     public void deleteConversation(String conversationId, String userId) {
+        ConversationMembership membership = membershipCache.get(conversationId);
+        if (membership.type() != ConversationType.DIRECT) throw new IllegalArgumentException("Use leaveGroup for groups");
+        if (!membership.contains(userId)) throw new IllegalArgumentException("Unauthorized");
+
         Conversation conv = conversationRepository.findById(conversationId).orElseThrow(() -> new IllegalArgumentException("Not found"));
-        if (conv.getType() != ConversationType.DIRECT) throw new IllegalArgumentException("Use leaveGroup for groups");
-        if (!conv.getParticipants().contains(userId)) throw new IllegalArgumentException("Unauthorized");
 
         Set<String> participants = new HashSet<>(conv.getParticipants());
         participants.remove(userId);
@@ -192,6 +366,8 @@ public class ChatServiceImpl implements ChatService {
             conv.setParticipants(participants);
             conversationRepository.save(conv);
         }
+        membershipCache.invalidate(conversationId);
+        inboxService.removeParticipant(conversationId, userId);
     }
 
     @Override
@@ -203,11 +379,56 @@ public class ChatServiceImpl implements ChatService {
     @Transactional
     public void deleteMessage(String messageId, String userId) {
         Message msg = messageRepository.findById(messageId).orElseThrow(() -> new IllegalArgumentException("Message not found"));
-        Conversation conv = conversationRepository.findById(msg.getConversationId()).orElseThrow(() -> new IllegalArgumentException("Conversation not found"));
-        if (!conv.getParticipants().contains(userId)) throw new IllegalArgumentException("Unauthorized");
+        ConversationMembership membership = membershipCache.get(msg.getConversationId());
+        if (!membership.contains(userId)) throw new IllegalArgumentException("Unauthorized");
 
         msg.setDeleted(true);
         messageRepository.save(msg);
+        revisionService.bump(msg.getConversationId());
+        publishDelta(MessageDelta.deleted(msg.getConversationId(), messageId));
+    }
+
+    @Override
+    public Message editMessage(String messageId, String userId, String body) {
+        if (body == null || body.isBlank()) throw new IllegalArgumentException("Body required");
+        String trimmed = body.trim();
+        if (trimmed.length() > MAX_BODY_LENGTH) throw new IllegalArgumentException("Message too long");
+
+        Message msg = messageRepository.findById(messageId).orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        ConversationMembership membership = membershipCache.get(msg.getConversationId());
+        if (!membership.contains(userId)) throw new IllegalArgumentException("Unauthorized");
+
+        Message updated = messageRepository.editBody(messageId, userId, trimmed, LocalDateTime.now(ZoneId.of("UTC")));
+        if (updated == null) throw new IllegalArgumentException("Only the sender can edit this message");
+
+        revisionService.bump(updated.getConversationId());
+        publishDelta(MessageDelta.edited(updated.getConversationId(), messageId, updated.getBody(), updated.getEditedAt()));
+        return updated;
+    }
+
+    @Override
+    public Message reactToMessage(String messageId, String userId, String emoji, boolean add) {
+        if (emoji == null || emoji.isBlank() || emoji.length() > MAX_EMOJI_LENGTH || emoji.contains(".") || emoji.startsWith("$")) {
+            throw new IllegalArgumentException("Invalid reaction");
+        }
+        Message msg = messageRepository.findById(messageId).orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        ConversationMembership membership = membershipCache.get(msg.getConversationId());
+        if (!membership.contains(userId)) throw new IllegalArgumentException("Unauthorized");
+
+        Message updated = add
+                ? messageRepository.addReaction(messageId, userId, emoji)
+                : messageRepository.removeReaction(messageId, userId, emoji);
+        // Repeated taps match nothing; nothing changed, so nothing to broadcast.
+        if (updated == null) return msg;
+
+        revisionService.bump(updated.getConversationId());
+        int count = updated.getReactionCounts() != null ? updated.getReactionCounts().getOrDefault(emoji, 0) : 0;
+        publishDelta(MessageDelta.reaction(add, updated.getConversationId(), messageId, userId, emoji, count));
+        return updated;
+    }
+
+    private void publishDelta(MessageDelta delta) {
+        messagingTemplate.convertAndSend("/topic/conversations/" + delta.conversationId() + "/deltas", delta);
     }
 
     @Override
@@ -221,7 +442,9 @@ public class ChatServiceImpl implements ChatService {
                     conv.setParticipants(new HashSet<>(Arrays.asList(userId, "ai-assistant")));
                     conv.setCreatedAt(LocalDateTime.now(ZoneId.of("UTC")));
                     conv.setUpdatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-                    return conversationRepository.save(conv);
+                    Conversation saved = conversationRepository.save(conv);
+                    inboxService.addParticipants(saved, List.of(userId));
+                    return saved;
                 });
     }
 
@@ -0,0 +1,11 @@
+package com.blink.chatservice.chat.service;
+
+import java.time.LocalDateTime;
+
+// What happened in one conversation during a write-behind window: the latest preview and its time.
+public record ConversationActivity(String preview, LocalDateTime messageAt) {
+
+    public static ConversationActivity merge(ConversationActivity a, ConversationActivity b) {
+        return b.messageAt().isBefore(a.messageAt()) ? a : b;
+    }
+}
@@ -0,0 +1,117 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.archive.MessageArchiveService;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Streams a whole conversation straight from a Mongo cursor to the caller's OutputStream.
+// Only one cursor batch (or one archive segment) is ever on the heap, so memory stays flat even for
+// 100k-message chats.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationExportService {
+
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final int FLUSH_EVERY = 500;
+    private static final DateTimeFormatter TXT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationMembershipCache membershipCache;
+    private final MessageArchiveService archiveService;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        TXT("text/plain;charset=UTF-8", "txt");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() { return contentType; }
+        public String extension()   { return extension; }
+
+        public static Format parse(String raw) {
+            if (raw == null || raw.isBlank()) return NDJSON;
+            try {
+                return Format.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + raw);
+            }
+        }
+    }
+
+    // Checked up front so unauthorized requests fail before the response is committed.
+    public void assertCanExport(String conversationId, String userId) {
+        if (!membershipCache.isMember(conversationId, userId)) throw new IllegalArgumentException("Unauthorized");
+    }
+
+    public long export(String conversationId, Format format, OutputStream out) throws IOException {
+        Query query = Query.query(Criteria.where("conversationId").is(conversationId).and("deleted").is(false))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+
+        ExportWriter writer = new ExportWriter(format, out);
+        // Archived history first: it is everything older than the retention cutoff, so order is preserved.
+        if (membershipCache.get(conversationId).archived()) {
+            archiveService.forEachSegment(conversationId, segment -> {
+                for (Message m : segment) writer.write(m);
+            });
+        }
+        try (Stream<Message> messages = mongoTemplate.stream(query, Message.class)) {
+            var it = messages.iterator();
+            while (it.hasNext()) writer.write(it.next());
+        }
+        out.flush();
+        long written = writer.written;
+        log.debug("Exported {} messages from conversation {} as {}", written, conversationId, format);
+        return written;
+    }
+
+    private final class ExportWriter {
+        private final Format format;
+        private final OutputStream out;
+        private long written;
+        // Ids only ever grow; overlapping archive segments or the archive/live boundary never repeat a message.
+        private String lastId;
+
+        ExportWriter(Format format, OutputStream out) {
+            this.format = format;
+            this.out = out;
+        }
+
+        void write(Message m) throws IOException {
+            if (lastId != null && m.getId() != null && m.getId().compareTo(lastId) <= 0) return;
+            if (m.getId() != null) lastId = m.getId();
+            out.write(format == Format.NDJSON ? objectMapper.writeValueAsBytes(m) : toTextLine(m));
+            out.write(NEWLINE);
+            if (++written % FLUSH_EVERY == 0) out.flush();
+        }
+    }
+
+    private static byte[] toTextLine(Message m) {
+        String time = m.getCreatedAt() != null ? m.getCreatedAt().format(TXT_TIME) : "";
+        return String.format("[%s] %s: %s", time, m.getSenderId(), m.getBody()).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,74 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+// Per-conversation revision counters for changes that do not move the inbox:
+//   chat:rev:{conversationId} -> n
+// Bumped by message edits, deletes and reactions, group detail changes, and for every conversation of a
+// user whose profile changes. The bootstrap ETag folds in the revisions of the conversations it covers,
+// so a snapshot holding an old body or name is never answered with 304.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationRevisionService {
+
+    private static final String KEY_PREFIX = "chat:rev:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ConversationRepository conversationRepository;
+
+    public void bump(String conversationId) {
+        if (conversationId == null) return;
+        try {
+            redisTemplate.opsForValue().increment(key(conversationId));
+        } catch (Exception e) {
+            log.warn("Failed to bump revision of conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    // Profile edits are rare, so one pipelined INCR per conversation of the user is fine here.
+    public void bumpForUser(String userId) {
+        if (userId == null) return;
+        try {
+            List<String> conversationIds = conversationRepository.findIdAndTypeByParticipant(userId).stream()
+                    .map(Conversation::getId)
+                    .toList();
+            if (conversationIds.isEmpty()) return;
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                conversationIds.forEach(id -> conn.incr(key(id)));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to bump conversation revisions for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // Revisions in the order given, 0 for conversations that never changed. When Redis cannot answer,
+    // the result is unique so that a conditional request is never confirmed against unknown state.
+    public String revisions(List<String> conversationIds) {
+        if (conversationIds.isEmpty()) return "";
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(conversationIds.stream().map(ConversationRevisionService::key).toList());
+            if (values == null) throw new IllegalStateException("No reply");
+            return String.join(",", values.stream().map(v -> Objects.requireNonNullElse(v, "0")).toList());
+        } catch (Exception e) {
+            log.warn("Failed to read conversation revisions: {}", e.getMessage());
+            return "unavailable:" + System.nanoTime();
+        }
+    }
+
+    private static String key(String conversationId) {
+        return KEY_PREFIX + conversationId;
+    }
+}
@@ -0,0 +1,129 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Write-behind buffer for the "last message" fields of a conversation.
+// sendMessage used to rewrite the whole conversation document (participants, admins, ...) on every
+// message; hot groups serialized on those rewrites. Now each send only records the latest preview here
+// and a scheduled flush pushes one partial update per conversation per window in a single bulk call.
+@Slf4j
+@Component
+public class ConversationUpdateCoalescer {
+
+    private static final String CONVERSATION_CACHE = "conversations_v2";
+
+    private final MongoTemplate mongoTemplate;
+    private final CacheManager cacheManager;
+    private final InboxService inboxService;
+    // Safety cap: if Mongo is down for a long time, stop buffering instead of growing forever.
+    private final int maxPending;
+    private final Counter dropped;
+
+    private final ConcurrentHashMap<String, ConversationActivity> pending = new ConcurrentHashMap<>();
+
+    public ConversationUpdateCoalescer(MongoTemplate mongoTemplate,
+                                       CacheManager cacheManager,
+                                       InboxService inboxService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.chat.conversation-max-pending:10000}") int maxPending) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheManager = cacheManager;
+        this.inboxService = inboxService;
+        this.maxPending = maxPending;
+        this.dropped = Counter.builder("chat.conversation.updates.dropped")
+                .description("Last-message updates dropped because the write-behind buffer was full")
+                .register(meterRegistry);
+    }
+
+    // With the buffer full, an update for a conversation that is not already pending is dropped rather
+    // than flushed inline: when Mongo is the reason it is full, an inline flush only fails again and puts
+    // everything back, on the sending thread. The conversation's next message rewrites the same fields.
+    public void recordMessage(String conversationId, String preview, LocalDateTime messageAt) {
+        if (conversationId == null || messageAt == null) return;
+        if (pending.size() >= maxPending && !pending.containsKey(conversationId)) {
+            dropped.increment();
+            log.debug("Conversation update buffer full ({}), dropping update for {}", maxPending, conversationId);
+            return;
+        }
+        pending.merge(conversationId, new ConversationActivity(preview, messageAt), ConversationActivity::merge);
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.conversation-flush-ms:500}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        // Drain key by key so updates recorded during the flush land in the next window.
+        Map<String, ConversationActivity> batch = new HashMap<>();
+        for (String conversationId : new ArrayList<>(pending.keySet())) {
+            ConversationActivity update = pending.remove(conversationId);
+            if (update != null) batch.put(conversationId, update);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class);
+            batch.forEach((conversationId, update) -> ops.updateOne(
+                    newerThanStored(Criteria.where("_id").is(conversationId), update), lastMessageUpdate(update)));
+            ops.execute();
+            inboxService.applyActivity(batch);
+            evictCached(batch.keySet());
+            log.debug("Flushed conversation metadata for {} conversations", batch.size());
+        } catch (Exception e) {
+            // Put the batch back, merged with anything newer, so the next tick retries it.
+            batch.forEach((conversationId, update) -> pending.merge(conversationId, update, ConversationActivity::merge));
+            log.warn("Failed to flush conversation metadata for {} conversations: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // Another replica may flush a later message first; a delayed older flush must not move the
+    // timestamps back or overwrite the newer preview, so it only matches if it is still the newest.
+    static Query newerThanStored(Criteria target, ConversationActivity update) {
+        return Query.query(target.and("lastMessageAt").not().gte(update.messageAt()));
+    }
+
+    static Update lastMessageUpdate(ConversationActivity update) {
+        return new Update()
+                .set("lastMessagePreview", update.preview())
+                .max("lastMessageAt", update.messageAt())
+                .max("updatedAt", update.messageAt());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Current number of conversations waiting for a flush. Exposed for testing.
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void evictCached(Iterable<String> conversationIds) {
+        var cache = cacheManager.getCache(CONVERSATION_CACHE);
+        if (cache == null) return;
+        try {
+            conversationIds.forEach(cache::evict);
+        } catch (Exception e) {
+            log.debug("Could not evict cached conversations after flush: {}", e.getMessage());
+        }
+    }
+}
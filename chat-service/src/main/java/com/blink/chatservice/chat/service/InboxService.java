@@ -0,0 +1,187 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.dto.CursorResponse;
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// Maintains the per-user inbox projection (collection "inbox").
+// Membership changes write entries directly; message activity arrives in batches from
+// ConversationUpdateCoalescer, so a message to a 5k-member group is one updateMulti, not 5k writes.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InboxService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    static final String BACKFILL_COLLECTION = "inbox_backfill";
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationRepository conversationRepository;
+    private final UnreadCounterService unreadCounterService;
+
+    public CursorResponse<InboxEntry> list(String userId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Criteria criteria = Criteria.where("userId").is(userId);
+
+        InboxCursor after = InboxCursor.decode(cursor);
+        if (after == null) {
+            backfillOnce(userId);
+        } else {
+            criteria = criteria.orOperator(
+                    Criteria.where("updatedAt").lt(after.updatedAt()),
+                    Criteria.where("updatedAt").is(after.updatedAt()).and("_id").lt(after.id()));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("_id")))
+                .limit(limit + 1);
+        List<InboxEntry> rows = mongoTemplate.find(query, InboxEntry.class);
+
+        boolean hasNext = rows.size() > limit;
+        List<InboxEntry> content = hasNext ? rows.subList(0, limit) : rows;
+        overlayUnreadCounts(userId, content);
+        return CursorResponse.from(new SliceImpl<>(content, PageRequest.of(0, limit), hasNext), InboxCursor::of);
+    }
+
+    // Cheap fingerprint of the user's inbox: the newest updatedAt plus the row count, both answered from
+    // user_updated_id_idx. Any activity moves the former; joins and leaves move the latter.
+    public String version(String userId) {
+        Query newest = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("_id")))
+                .limit(1);
+        newest.fields().include("updatedAt");
+        InboxEntry latest = mongoTemplate.findOne(newest, InboxEntry.class);
+        long rows = mongoTemplate.count(new Query(Criteria.where("userId").is(userId)), InboxEntry.class);
+        return rows + ":" + (latest != null ? latest.getUpdatedAt() : null);
+    }
+
+    // Conversation ids of the first inbox page, newest first. Only _id is read, and it embeds the
+    // conversation id, so this is answered from user_updated_id_idx alone.
+    public List<String> recentConversationIds(String userId, int size) {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("_id")))
+                .limit(Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        query.fields().include("_id");
+        int prefix = InboxEntry.idFor(userId, "").length();
+        return mongoTemplate.find(query, InboxEntry.class).stream()
+                .map(entry -> entry.getId().substring(prefix))
+                .toList();
+    }
+
+    // Upserts an entry for each user; used on conversation creation and when members join.
+    public void addParticipants(Conversation conv, Collection<String> userIds) {
+        if (conv == null || userIds == null || userIds.isEmpty()) return;
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+        userIds.forEach(userId -> upsertEntry(ops, conv, userId));
+        ops.execute();
+    }
+
+    public void removeParticipant(String conversationId, String userId) {
+        mongoTemplate.remove(byId(userId, conversationId), InboxEntry.class);
+        unreadCounterService.clear(userId, conversationId);
+    }
+
+    public void updateDetails(Conversation conv) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("conversationId").is(conv.getId())),
+                new Update().set("title", conv.getTitle()).set("avatarUrl", conv.getAvatarUrl()),
+                InboxEntry.class);
+    }
+
+    // One updateMulti per conversation for the preview. Unread counts live in Redis (UnreadCounterService).
+    public void applyActivity(Map<String, ConversationActivity> activity) {
+        if (activity.isEmpty()) return;
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+        activity.forEach((conversationId, a) -> ops.updateMulti(
+                ConversationUpdateCoalescer.newerThanStored(Criteria.where("conversationId").is(conversationId), a),
+                ConversationUpdateCoalescer.lastMessageUpdate(a)));
+        ops.execute();
+    }
+
+    // Users who had conversations before the inbox existed get their entries built on first listing.
+    // Completion is recorded per user in its own marker collection rather than inferred from "no entries
+    // yet", since a join or new chat before the first listing would otherwise hide all older ones.
+    private void backfillOnce(String userId) {
+        Query marker = Query.query(Criteria.where("_id").is(userId));
+        if (mongoTemplate.exists(marker, BACKFILL_COLLECTION)) return;
+        List<Conversation> conversations = conversationRepository.findByParticipantsContainingOrderByUpdatedAtDesc(userId);
+        if (!conversations.isEmpty()) {
+            // Insert-only: rows that already exist are at least as fresh as the conversation document.
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+            conversations.forEach(conv -> ops.upsert(byId(userId, conv.getId()), entryFields(conv, userId, true)));
+            ops.execute();
+            log.info("Backfilled {} inbox entries for user {}", conversations.size(), userId);
+        }
+        // Written last, so a failed backfill is simply retried on the next listing.
+        mongoTemplate.upsert(marker, new Update().set("backfilledAt", LocalDateTime.now(ZoneOffset.UTC)), BACKFILL_COLLECTION);
+    }
+
+    private static void upsertEntry(BulkOperations ops, Conversation conv, String userId) {
+        ops.upsert(byId(userId, conv.getId()), entryFields(conv, userId, false));
+    }
+
+    private static Update entryFields(Conversation conv, String userId, boolean insertOnly) {
+        Update update = new Update();
+        BiConsumer<String, Object> field = insertOnly ? update::setOnInsert : update::set;
+        field.accept("userId", userId);
+        field.accept("conversationId", conv.getId());
+        field.accept("type", conv.getType());
+        field.accept("title", conv.getTitle());
+        field.accept("avatarUrl", conv.getAvatarUrl());
+        field.accept("lastMessagePreview", conv.getLastMessagePreview());
+        field.accept("lastMessageAt", conv.getLastMessageAt());
+        field.accept("updatedAt", conv.getUpdatedAt());
+        return update;
+    }
+
+    private void overlayUnreadCounts(String userId, List<InboxEntry> entries) {
+        if (entries.isEmpty()) return;
+        Map<String, Long> counts = unreadCounterService.getUnreadCounts(userId,
+                entries.stream().map(InboxEntry::getConversationId).toList());
+        entries.forEach(e -> e.setUnreadCount(counts.getOrDefault(e.getConversationId(), 0L)));
+    }
+
+    private static Query byId(String userId, String conversationId) {
+        return Query.query(Criteria.where("_id").is(InboxEntry.idFor(userId, conversationId)));
+    }
+
+    // Position in the (updatedAt desc, _id desc) ordering.
+    private record InboxCursor(LocalDateTime updatedAt, String id) {
+
+        static String of(InboxEntry entry) {
+            long millis = entry.getUpdatedAt() != null ? entry.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+            return millis + "|" + entry.getId();
+        }
+
+        static InboxCursor decode(String cursor) {
+            String raw = CursorResponse.decodeRaw(cursor);
+            if (raw == null) return null;
+            int sep = raw.indexOf('|');
+            try {
+                long millis = Long.parseLong(raw.substring(0, sep));
+                return new InboxCursor(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC), raw.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.blink.chatservice.chat.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Short-lived (senderId, clientMessageId) -> messageId map so retried sends are answered from Redis.
+// Only a fast path: the unique index on messages is what actually prevents duplicates, so Redis
+// errors are swallowed and the caller falls through to Mongo.
+@Slf4j
+@Component
+public class MessageDedupeCache {
+
+    private static final String KEY_PREFIX = "chat:dedupe:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration window;
+
+    public MessageDedupeCache(StringRedisTemplate redisTemplate,
+                              @Value("${app.chat.dedupe-window-seconds:300}") long windowSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.window = Duration.ofSeconds(windowSeconds);
+    }
+
+    public String find(String senderId, String clientMessageId) {
+        try {
+            return redisTemplate.opsForValue().get(key(senderId, clientMessageId));
+        } catch (Exception e) {
+            log.debug("Dedupe lookup failed for {}: {}", clientMessageId, e.getMessage());
+            return null;
+        }
+    }
+
+    public void remember(String senderId, String clientMessageId, String messageId) {
+        try {
+            redisTemplate.opsForValue().set(key(senderId, clientMessageId), messageId, window);
+        } catch (Exception e) {
+            log.debug("Dedupe write failed for {}: {}", clientMessageId, e.getMessage());
+        }
+    }
+
+    private static String key(String senderId, String clientMessageId) {
+        return KEY_PREFIX + senderId + ":" + clientMessageId;
+    }
+}
@@ -0,0 +1,126 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.websocket.dto.ReadReceiptBatch;
+import com.blink.chatservice.websocket.dto.ReadReceiptEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read state based on a per-(user, conversation) high-water mark instead of per-message flags.
+// One ack clears every message up to the given id; receipts are buffered and sent as one
+// ReadReceiptBatch frame per conversation per window.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReadReceiptService {
+
+    private static final String READ_KEY_PREFIX = "chat:read:";
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final int MAX_COUNTED_UNREAD = 1000;
+
+    // KEYS: read marks. ARGV: userId, messageId. Returns 1 if the mark moved forward.
+    private static final String ADVANCE_SCRIPT =
+            "local current = redis.call('HGET', KEYS[1], ARGV[1])\n" +
+            "if current and current >= ARGV[2] then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "return 1\n";
+
+    // KEYS: read marks, unread counters. ARGV: userId, mark, conversationId, count.
+    // Writes the counter only while the mark is still the one the count was taken for.
+    private static final String RESET_UNREAD_SCRIPT =
+            "if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then return 0 end\n" +
+            "if tonumber(ARGV[4]) <= 0 then redis.call('HDEL', KEYS[2], ARGV[3])\n" +
+            "else redis.call('HSET', KEYS[2], ARGV[3], ARGV[4]) end\n" +
+            "return 1\n";
+
+    private final DefaultRedisScript<Long> advanceScript = new DefaultRedisScript<>(ADVANCE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> resetUnreadScript = new DefaultRedisScript<>(RESET_UNREAD_SCRIPT, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final ConversationMembershipCache membershipCache;
+    private final UnreadCounterService unreadCounterService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ConcurrentHashMap<String, Map<String, ReadReceiptEvent>> pendingReceipts = new ConcurrentHashMap<>();
+
+    // Returns the number of messages still unread after the ack.
+    public long markRead(String conversationId, String userId, String lastReadMessageId) {
+        if (lastReadMessageId == null || !ObjectId.isValid(lastReadMessageId)) throw new IllegalArgumentException("Valid messageId required");
+        ConversationMembership membership = membershipCache.get(conversationId);
+        if (!membership.contains(userId)) throw new IllegalArgumentException("Unauthorized");
+
+        // ObjectId hex strings sort chronologically, so a string compare inside the script keeps the
+        // mark monotonic even when two acks race.
+        String key = READ_KEY_PREFIX + conversationId;
+        Long advanced = redisTemplate.execute(advanceScript, List.of(key), userId, lastReadMessageId);
+        if (advanced == null || advanced == 0L) {
+            return unreadCounterService.getUnreadCounts(userId, List.of(conversationId)).getOrDefault(conversationId, 0L);
+        }
+
+        // Whatever arrived after the mark is still unread. Capped: clients show "999+" past that anyway.
+        long remaining = mongoTemplate.count(Query.query(Criteria.where("conversationId").is(conversationId)
+                .and("deleted").is(false)
+                .and("_id").gt(new ObjectId(lastReadMessageId))
+                .and("senderId").ne(userId)).limit(MAX_COUNTED_UNREAD), Message.class);
+        // Only if no newer ack has moved the mark meanwhile; its own count is the fresher one.
+        redisTemplate.execute(resetUnreadScript, List.of(key, UnreadCounterService.key(userId)),
+                userId, lastReadMessageId, conversationId, Long.toString(remaining));
+
+        // Direct chats keep the legacy per-message flag in sync with one range update.
+        if (membership.type() == ConversationType.DIRECT) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("conversationId").is(conversationId)
+                    .and("recipientId").is(userId)
+                    .and("seen").is(false)
+                    .and("_id").lte(new ObjectId(lastReadMessageId))), new Update().set("seen", true), Message.class);
+        }
+
+        pendingReceipts.computeIfAbsent(conversationId, k -> new ConcurrentHashMap<>())
+                .put(userId, new ReadReceiptEvent(userId, lastReadMessageId, LocalDateTime.now(UTC)));
+        return remaining;
+    }
+
+    public String getLastRead(String conversationId, String userId) {
+        Object value = redisTemplate.opsForHash().get(READ_KEY_PREFIX + conversationId, userId);
+        return value != null ? value.toString() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.receipt-flush-ms:1000}")
+    public void flushReceipts() {
+        if (pendingReceipts.isEmpty()) return;
+        Map<String, Map<String, ReadReceiptEvent>> batch = new HashMap<>();
+        for (String conversationId : new ArrayList<>(pendingReceipts.keySet())) {
+            Map<String, ReadReceiptEvent> receipts = pendingReceipts.remove(conversationId);
+            if (receipts != null && !receipts.isEmpty()) batch.put(conversationId, receipts);
+        }
+        batch.forEach((conversationId, receipts) -> {
+            try {
+                messagingTemplate.convertAndSend("/topic/conversations/" + conversationId + "/receipts",
+                        new ReadReceiptBatch(conversationId, List.copyOf(receipts.values())));
+            } catch (Exception e) {
+                log.warn("Failed to publish read receipts for conversation {}: {}", conversationId, e.getMessage());
+            }
+        });
+    }
+}
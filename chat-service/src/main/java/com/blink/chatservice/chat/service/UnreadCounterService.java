@@ -0,0 +1,95 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-(user, conversation) unread counters kept in one Redis hash per user:
+//   chat:unread:{userId} -> { conversationId: count }
+// Incremented when a message is stored and reset by markRead; both sides see the same messages.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "chat:unread:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    // Applied on the send path rather than write-behind: markRead resets the counter to an exact count
+    // of what is already stored, and a delayed increment for a message that count had already seen
+    // would leave it permanently one too high. One pipelined round trip per send.
+    public void recordMessages(String conversationId, ConversationMembership membership, String senderId, int count) {
+        if (count <= 0) return;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                membership.participants().stream()
+                        .filter(userId -> !userId.equals(senderId))
+                        .forEach(userId -> conn.hIncrBy(key(userId), conversationId, count));
+                return null;
+            });
+        } catch (Exception e) {
+            // Counters are advisory; the next markRead recomputes them from the read high-water mark.
+            log.warn("Failed to update unread counters for conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    public void clear(String userId, String conversationId) {
+        try {
+            redisTemplate.opsForHash().delete(key(userId), conversationId);
+        } catch (Exception e) {
+            log.debug("Failed to clear unread counter for {} in {}: {}", userId, conversationId, e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getUnreadCounts(String userId) {
+        try {
+            Map<Object, Object> raw = redisTemplate.opsForHash().entries(key(userId));
+            Map<String, Long> counts = new HashMap<>();
+            raw.forEach((k, v) -> counts.put(k.toString(), parse(v)));
+            return counts;
+        } catch (Exception e) {
+            log.warn("Failed to read unread counters for {}: {}", userId, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    public Map<String, Long> getUnreadCounts(String userId, Collection<String> conversationIds) {
+        if (conversationIds.isEmpty()) return Map.of();
+        try {
+            List<Object> fields = List.copyOf(conversationIds);
+            List<Object> values = redisTemplate.opsForHash().multiGet(key(userId), fields);
+            Map<String, Long> counts = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                counts.put(fields.get(i).toString(), parse(values.get(i)));
+            }
+            return counts;
+        } catch (Exception e) {
+            log.warn("Failed to read unread counters for {}: {}", userId, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    static String key(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static long parse(Object value) {
+        if (value == null) return 0L;
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
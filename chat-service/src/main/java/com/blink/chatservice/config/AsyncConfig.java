@@ -1,5 +1,7 @@
 package com.blink.chatservice.config;
 
+import com.blink.chatservice.chat.fanout.FanoutLanes;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -10,6 +12,8 @@ import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -60,6 +64,32 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    // Per-user message delivery for groups. Kept apart from the STOMP channel pools so a large
+    // fan-out queues here instead of holding the inbound thread that accepted the message.
+    // Each lane is one thread so a user's frames stay in order. Publishing never waits on a lane: that
+    // would stall the STOMP inbound thread inside sendMessage, and running the batch on the caller would
+    // overtake frames still queued for the same users. Instead the queue is deep (a batch is up to
+    // batch-size users) and a full lane sheds the batch; MessageFanoutService counts it and reports
+    // queue depth. Shed frames are missed live but still reach the user through history and the inbox.
+    @Bean(destroyMethod = "shutdown")
+    public FanoutLanes fanoutLanes(@Value("${app.chat.fanout.lanes:8}") int lanes,
+                                   @Value("${app.chat.fanout.lane-capacity:10000}") int laneCapacity) {
+        List<ThreadPoolTaskExecutor> executors = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            executor.setMaxPoolSize(1);
+            executor.setQueueCapacity(laneCapacity);
+            executor.setThreadNamePrefix("Fanout-" + i + "-");
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(15);
+            executor.initialize();
+            executors.add(executor);
+        }
+        return new FanoutLanes(executors);
+    }
+
     @Bean(name = "heartTaskScheduler")
     public TaskScheduler heartTaskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
@@ -0,0 +1,22 @@
+package com.blink.chatservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// The conversation export streams through a StreamingResponseBody, which runs under the MVC async
+// timeout (the container default, ~30s, when unset). By the time that fires the 200 and part of the file
+// are already on the wire, so a long export would end up silently truncated. The export is the only async
+// endpoint here, so the default is raised for all of them; a timeout <= 0 means no limit.
+@Configuration
+public class WebMvcAsyncConfig implements WebMvcConfigurer {
+
+    @Value("${app.chat.export.timeout-ms:3600000}")
+    private long exportTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(exportTimeoutMs > 0 ? exportTimeoutMs : -1);
+    }
+}
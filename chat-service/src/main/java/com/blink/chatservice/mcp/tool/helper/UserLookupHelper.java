@@ -115,7 +115,7 @@ public class UserLookupHelper {
         info.put("username", user.getUsername() != null ? user.getUsername() : "");
         info.put("email", user.getEmail() != null ? user.getEmail() : "");
         info.put("phone", user.getPhone() != null ? user.getPhone() : "");
-        info.put("online", user.isOnline());
+        info.put("online", userService.isUserOnline(user.getId()));
         
         // Display name priority: username > email > phone > id
         String displayName = user.getUsername();
@@ -34,6 +34,9 @@ public class RateLimitConfig {
     // Message sending – moderate but tighter than global read endpoints.
     private Bucket messageSend = new Bucket(30, 60);
 
+    // Bulk message sending – each request may carry up to 100 messages, so very tight.
+    private Bucket messageBatch = new Bucket(3, 60);
+
     @Data
     public static class Bucket {
         private int maxRequests;
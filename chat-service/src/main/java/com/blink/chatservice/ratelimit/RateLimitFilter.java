@@ -32,6 +32,8 @@ public class RateLimitFilter extends OncePerRequestFilter {
     private static final ObjectMapper MAPPER = new ObjectMapper();
     // Pre-compiled regex to avoid re-compilation on every POST request (GC pressure)
     private static final Pattern MESSAGE_SEND_PATTERN = Pattern.compile("/api/v1/chat/[^/]+/messages");
+    // A batch carries up to 100 messages, so it cannot share the one-token-per-request send bucket.
+    private static final Pattern MESSAGE_BATCH_PATTERN = Pattern.compile("/api/v1/chat/[^/]+/messages:batch");
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
@@ -119,7 +121,7 @@ public class RateLimitFilter extends OncePerRequestFilter {
         if (path.startsWith("/api/v1/ai/")) {
             return config.getAi();
         }
-        if (path.startsWith("/api/v1/users/search")) {
+        if (path.startsWith("/api/v1/users/search") || path.startsWith("/api/v1/chat/search")) {
             return config.getSearch();
         }
         if (path.startsWith("/api/v1/calls/")) {
@@ -131,16 +133,20 @@ public class RateLimitFilter extends OncePerRequestFilter {
         if (MESSAGE_SEND_PATTERN.matcher(path).matches() && "POST".equalsIgnoreCase(method)) {
             return config.getMessageSend();
         }
+        if (MESSAGE_BATCH_PATTERN.matcher(path).matches() && "POST".equalsIgnoreCase(method)) {
+            return config.getMessageBatch();
+        }
         return config.getGlobal();
     }
 
     private String resolveBucketTag(String path, String method) {
         if (path.startsWith("/api/v1/auth/")) return "auth";
         if (path.startsWith("/api/v1/ai/"))   return "ai";
-        if (path.startsWith("/api/v1/users/search")) return "search";
+        if (path.startsWith("/api/v1/users/search") || path.startsWith("/api/v1/chat/search")) return "search";
         if (path.startsWith("/api/v1/calls/")) return "calls";
         if (path.equals("/api/v1/chat/send-email")) return "email";
         if (MESSAGE_SEND_PATTERN.matcher(path).matches() && "POST".equalsIgnoreCase(method)) return "msg-send";
+        if (MESSAGE_BATCH_PATTERN.matcher(path).matches() && "POST".equalsIgnoreCase(method)) return "msg-batch";
         return "global";
     }
 }
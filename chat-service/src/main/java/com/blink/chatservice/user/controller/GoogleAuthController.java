@@ -190,7 +190,6 @@ public class GoogleAuthController {
         if (jwt != null && jwtUtil.validateToken(jwt)) {
             String userId = jwtUtil.extractUserId(jwt);
             userRepository.findById(userId).ifPresent(u -> {
-                u.setOnline(false);
                 u.setLastSeen(java.time.LocalDateTime.now(java.time.ZoneId.of("UTC")));
                 userRepository.save(u);
             });
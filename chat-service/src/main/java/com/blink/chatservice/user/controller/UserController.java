@@ -4,6 +4,7 @@ import com.blink.chatservice.user.dto.UpdateProfileRequest;
 import com.blink.chatservice.user.entity.User;
 import com.blink.chatservice.user.repository.UserRepository;
 import com.blink.chatservice.user.service.UserService;
+import com.blink.chatservice.websocket.service.PresenceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -22,12 +24,14 @@ public class UserController {
 
     private final UserService userService;
     private final UserRepository userRepository;
+    private final PresenceService presenceService;
 
     @GetMapping("/me")
     @Operation(summary = "Get current user profile")
     public ResponseEntity<User> me(Authentication authentication) {
         String userId = authentication.getName();
         User user = userService.getProfile(userId);
+        user.setOnline(presenceService.isOnline(userId));
         return ResponseEntity.ok(user);
     }
 
@@ -46,6 +50,7 @@ public class UserController {
                 request.getEmail(),
                 request.getPhone()
         );
+        updated.setOnline(presenceService.isOnline(userId));
         return ResponseEntity.ok(updated);
     }
 
@@ -53,6 +58,7 @@ public class UserController {
     @Operation(summary = "Get user profile by ID")
     public ResponseEntity<User> getUserProfile(@PathVariable String userId) {
         User user = userService.getProfile(userId);
+        user.setOnline(presenceService.isOnline(userId));
         return ResponseEntity.ok(user);
     }
 
@@ -64,6 +70,8 @@ public class UserController {
             return ResponseEntity.badRequest().build();
         }
         List<User> users = userRepository.findAllById(ids);
+        Set<String> online = presenceService.onlineAmong(users.stream().map(User::getId).toList());
+        users.forEach(user -> user.setOnline(online.contains(user.getId())));
         return ResponseEntity.ok(users);
     }
 }
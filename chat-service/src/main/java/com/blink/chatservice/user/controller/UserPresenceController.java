@@ -29,6 +29,17 @@ public class UserPresenceController {
         return ResponseEntity.ok(userIds);
     }
 
+    @GetMapping("/me/peers/online")
+    @Operation(
+            summary = "List online conversation peers",
+            description = "Returns the users sharing a conversation with the caller who are online now. " +
+                    "Clients load this once, then apply PresenceDiff frames from /user/queue/presence."
+    )
+    public ResponseEntity<List<String>> listOnlinePeers(Authentication authentication) {
+        List<String> userIds = userServiceimpl.getOnlinePeerIds(authentication.getName());
+        return ResponseEntity.ok(userIds);
+    }
+
     @GetMapping("/{userId}/online")
     @Operation(
             summary = "Check if a user is online",
@@ -2,6 +2,7 @@ package com.blink.chatservice.user.controller;
 
 import com.blink.chatservice.user.entity.User;
 import com.blink.chatservice.user.service.UserService;
+import com.blink.chatservice.websocket.service.PresenceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.NotBlank;
@@ -11,6 +12,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -19,6 +21,7 @@ import java.util.List;
 public class UserSearchController {
 
     private final UserService userService; // use interface
+    private final PresenceService presenceService;
 
     @GetMapping("/search")
     @Operation(
@@ -33,10 +36,11 @@ public class UserSearchController {
         try {
             String currentUserId = auth.getName();
 
-            List<UserSummaryDto> results = userService
-                    .searchUsersByContact(query, currentUserId)
-                    .stream()
-                    .map(user -> mapToSummary(user, currentUserId))
+            List<User> users = userService.searchUsersByContact(query, currentUserId);
+            // One pipelined presence lookup for the whole result page.
+            Set<String> online = presenceService.onlineAmong(users.stream().map(User::getId).toList());
+            List<UserSummaryDto> results = users.stream()
+                    .map(user -> mapToSummary(user, currentUserId, online.contains(user.getId())))
                     .toList();
 
             return ResponseEntity.ok(results);
@@ -45,7 +49,7 @@ public class UserSearchController {
         }
     }
 
-    private UserSummaryDto mapToSummary(User user, String currentUserId) {
+    private UserSummaryDto mapToSummary(User user, String currentUserId, boolean online) {
         String username = user.getUsername();
         String displayName = username;
         String maskedPhone = maskPhone(user.getPhone());
@@ -61,7 +65,7 @@ public class UserSearchController {
                 displayName,
                 maskedPhone,
                 user.getAvatarUrl(),
-                user.isOnline(),
+                online,
                 isContact,
                 isSelf
         );
@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.io.Serial;
@@ -34,6 +35,8 @@ public class User implements Serializable {
     private String bio;
     private boolean avatarManual = false;
     private boolean usernameManual = false;
+    // Filled from PresenceService when a profile is returned; never stored, so it cannot go stale.
+    @Transient
     private boolean online = false;
     private LocalDateTime lastSeen;
     private Set<String> devices = new HashSet<>();
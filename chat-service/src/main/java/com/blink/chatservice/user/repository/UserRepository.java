@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,11 +21,10 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByUsername(String username);
     Optional<User> findFirstByUsername(String username);
     List<User> findByUsernameContainingIgnoreCase(String username);
+    List<User> findByUsernameIn(Collection<String> usernames);
 
     @Query("{ '$or': [ { 'username': { '$regex': ?0, '$options': 'i' } }, { 'phone': { '$regex': ?0, '$options': 'i' } }, { 'email': { '$regex': ?0, '$options': 'i' } } ] }")
     List<User> searchUsers(String query);
-    
-    List<User> findByOnlineTrue();
 
     @Query(value = "{ '$and': [ { '$or': [ { 'username': { '$exists': false } }, { 'username': null }, { 'username': '' } ] }, { 'createdAt': { '$lt': ?0 } } ] }", delete = true)
     long deleteIncompleteUsers(LocalDateTime threshold);
@@ -196,7 +196,6 @@ public class OAuthService {
             }
         }
 
-        user.setOnline(true);
         user.setLastSeen(LocalDateTime.now(ZoneId.of("UTC")));
         user = userRepository.save(user);
 
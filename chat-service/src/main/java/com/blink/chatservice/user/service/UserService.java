@@ -19,6 +19,8 @@ public interface UserService {
     User updateProfile(String userId, String username, String avatarUrl, String bio, String email, String phone);
     List<User> searchUsersByContact(String query, String currentUserId);
     List<String> getOnlineUserIds();
+
+    List<String> getOnlinePeerIds(String userId);
     boolean isUserOnline(String userId);
     boolean userExists(String identifier);
     String resolveUserIdFromContact(String contact);
@@ -1,5 +1,6 @@
 package com.blink.chatservice.user.service;
 
+import com.blink.chatservice.chat.service.ConversationRevisionService;
 import com.blink.chatservice.config.JwtConfig;
 import com.blink.chatservice.security.JwtUtil;
 import com.blink.chatservice.user.dto.AuthDto;
@@ -7,6 +8,7 @@ import com.blink.chatservice.user.entity.RefreshToken;
 import com.blink.chatservice.user.entity.User;
 import com.blink.chatservice.user.repository.RefreshTokenRepository;
 import com.blink.chatservice.user.repository.UserRepository;
+import com.blink.chatservice.websocket.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachePut;
@@ -35,6 +37,8 @@ public class UserServiceImpl implements UserService {
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtConfig jwtConfig;
     private final CacheManager cacheManager;
+    private final PresenceService presenceService;
+    private final ConversationRevisionService revisionService;
 
     @Override
     public String requestOtp(String identifier) {
@@ -149,7 +153,6 @@ public class UserServiceImpl implements UserService {
             rt.setRevoked(true);
             refreshTokenRepository.save(rt);
             userRepository.findById(rt.getUserId()).ifPresent(user -> {
-                user.setOnline(false);
                 user.setLastSeen(LocalDateTime.now(ZoneId.of("UTC")));
                 userRepository.save(user);
             });
@@ -194,7 +197,10 @@ public class UserServiceImpl implements UserService {
             checkPhone(phone, userId);
             user.setPhone(phone.trim());
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Names are part of other members' bootstrap snapshots.
+        revisionService.bumpForUser(userId);
+        return saved;
     }
 
     @Override
@@ -206,12 +212,17 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public List<String> getOnlineUserIds() {
-        return userRepository.findByOnlineTrue().stream().map(User::getId).collect(Collectors.toList());
+        return presenceService.getOnlineUserIds();
+    }
+
+    @Override
+    public List<String> getOnlinePeerIds(String userId) {
+        return new ArrayList<>(presenceService.onlinePeersOf(userId));
     }
 
     @Override
     public boolean isUserOnline(String userId) {
-        return userRepository.findById(userId).map(User::isOnline).orElse(false);
+        return presenceService.isOnline(userId);
     }
 
     @Override
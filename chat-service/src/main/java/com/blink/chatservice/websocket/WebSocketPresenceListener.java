@@ -1,73 +1,51 @@
 package com.blink.chatservice.websocket;
 
 import java.security.Principal;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import com.blink.chatservice.user.entity.User;
-import com.blink.chatservice.user.repository.UserRepository;
-import com.blink.chatservice.websocket.dto.PresenceEvent;
+import com.blink.chatservice.websocket.service.PresenceService;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 
 
-@Slf4j
+// Feeds session lifecycle and liveness into PresenceService.
+// Connect/disconnect events open and close a presence session; as an inbound channel interceptor it
+// also marks the session alive on every client frame, STOMP heartbeats included.
 @Component
 @RequiredArgsConstructor
-public class WebSocketPresenceListener {
+public class WebSocketPresenceListener implements ChannelInterceptor {
 
-    private static final ZoneId UTC = ZoneId.of("UTC");
-
-    private final UserRepository userRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectEvent event) {
         StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
         Principal principal = accessor.getUser();
-        if (principal == null) return;
-
-        String userId = principal.getName();
-        try {
-            userRepository.findById(userId).ifPresent(user -> {
-                user.setOnline(true);
-                userRepository.save(user);
-                broadcastPresence(user);
-            });
-        } catch (Exception e) {
-            log.warn("Failed to update presence on connect for user {}: {}", userId, e.getMessage());
-        }
+        String sessionId = accessor.getSessionId();
+        if (principal == null || sessionId == null) return;
+        presenceService.sessionConnected(principal.getName(), sessionId);
     }
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
-        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
-        Principal principal = accessor.getUser();
+        Principal principal = event.getUser();
         if (principal == null) return;
-
-        String userId = principal.getName();
-        try {
-            userRepository.findById(userId).ifPresent(user -> {
-                user.setOnline(false);
-                user.setLastSeen(LocalDateTime.now(UTC));
-                userRepository.save(user);
-                broadcastPresence(user);
-            });
-        } catch (Exception e) {
-            log.warn("Failed to update presence on disconnect for user {}: {}", userId, e.getMessage());
-        }
+        presenceService.sessionDisconnected(principal.getName(), event.getSessionId());
     }
 
-    private void broadcastPresence(User user) {
-        PresenceEvent event = new PresenceEvent(user.getId(), user.isOnline());
-        messagingTemplate.convertAndSend("/topic/presence", event);
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) presenceService.touch(sessionId);
+        return message;
     }
 }
@@ -1,11 +1,13 @@
 package com.blink.chatservice.websocket;
 
 import java.security.Principal;
-import java.time.Instant;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -17,6 +19,15 @@ import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
+// Registry of the STOMP sessions connected to this node, queryable by session and by user.
+//   - Sessions live in power-of-two shards of ConcurrentHashMap, presized for max-tracked sessions,
+//     so growth to 100k+ never rehashes one huge table.
+//   - userId -> session ids is kept alongside as a small copy-on-write array per user (most users
+//     have one to three sessions), so "which sessions does user X have" is a single lookup.
+//   - Stale entries (connected longer than the threshold, typically a lost disconnect event) expire
+//     through a timing wheel: each sweep only visits the slot whose sessions just crossed the
+//     threshold instead of scanning every session.
+// Fan-out, presence and calls query isConnected/sessionsOf; both are O(1).
 @Slf4j
 @Component
 public class WebSocketSessionManager {
@@ -24,16 +35,46 @@ public class WebSocketSessionManager {
     // Max age before a session entry is considered stale and force-evicted.
     private static final long STALE_SESSION_THRESHOLD_MS = 24 * 60 * 60 * 1000L; // 24 hours
 
-    // Hard cap to prevent unbounded growth even under pathological conditions.
-    private static final int MAX_TRACKED_SESSIONS = 5000;
+    // Wheel resolution; matches the sweep schedule so each sweep expires one slot.
+    private static final long TICK_MS = 5 * 60 * 1000L; // 5 minutes
 
-    private final ConcurrentHashMap<String, SessionInfo> activeSessions = new ConcurrentHashMap<>();
+    // Enough slots to cover the threshold, plus one so a slot is never reused while still live.
+    private static final int WHEEL_SLOTS = (int) (STALE_SESSION_THRESHOLD_MS / TICK_MS) + 1;
+
+    private final ConcurrentHashMap<String, SessionInfo>[] shards;
+    private final int shardMask;
+    private final int maxTrackedSessions;
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    // userId -> ids of that user's sessions on this node; arrays are replaced, never mutated.
+    private final ConcurrentHashMap<String, String[]> sessionsByUser;
+
+    private final Set<String>[] wheel;
+    // Last tick whose slot has been swept; -1 until the first sweep.
+    private volatile long sweptTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public WebSocketSessionManager(MeterRegistry meterRegistry,
+                                   @Value("${app.websocket.sessions.max-tracked:200000}") int maxTrackedSessions,
+                                   @Value("${app.websocket.sessions.shards:64}") int shardCount) {
+        int shardsPow2 = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new ConcurrentHashMap[shardsPow2];
+        int perShard = Math.max(16, maxTrackedSessions / shardsPow2);
+        for (int i = 0; i < shardsPow2; i++) shards[i] = new ConcurrentHashMap<>(perShard);
+        this.shardMask = shardsPow2 - 1;
+        this.maxTrackedSessions = maxTrackedSessions;
+        this.sessionsByUser = new ConcurrentHashMap<>(Math.max(16, maxTrackedSessions / 2));
+
+        this.wheel = new Set[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) wheel[i] = ConcurrentHashMap.newKeySet();
 
-    public WebSocketSessionManager(MeterRegistry meterRegistry) {
         // Register a Prometheus gauge: websocket.sessions.active
-        Gauge.builder("websocket.sessions.active", activeSessions, ConcurrentHashMap::size)
+        Gauge.builder("websocket.sessions.active", sessionCount, AtomicInteger::get)
                 .description("Number of active WebSocket sessions tracked by the session manager")
                 .register(meterRegistry);
+        Gauge.builder("websocket.users.connected", sessionsByUser, ConcurrentHashMap::size)
+                .description("Number of distinct users with at least one session on this node")
+                .register(meterRegistry);
     }
 
     @EventListener
@@ -43,20 +84,7 @@ public class WebSocketSessionManager {
         if (sessionId == null) return;
 
         Principal principal = accessor.getUser();
-        String userId = principal != null ? principal.getName() : "anonymous";
-
-        // Enforce hard cap — evict stale entries first, then reject if still full
-        if (activeSessions.size() >= MAX_TRACKED_SESSIONS) {
-            evictStaleSessions();
-            if (activeSessions.size() >= MAX_TRACKED_SESSIONS) {
-                log.warn("Session map at capacity ({}), cannot track session {} for user {}",
-                        MAX_TRACKED_SESSIONS, sessionId, userId);
-                return;
-            }
-        }
-
-        activeSessions.put(sessionId, new SessionInfo(userId, Instant.now()));
-        log.debug("Session connected: {} (user: {}, active: {})", sessionId, userId, activeSessions.size());
+        register(sessionId, principal != null ? principal.getName() : "anonymous", System.currentTimeMillis());
     }
 
     @EventListener
@@ -64,44 +92,141 @@ public class WebSocketSessionManager {
         StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
         String sessionId = accessor.getSessionId();
         if (sessionId == null) return;
+        unregister(sessionId);
+    }
 
-        SessionInfo removed = activeSessions.remove(sessionId);
-        if (removed != null) {
-            log.debug("Session disconnected: {} (user: {}, active: {})",
-                    sessionId, removed.userId(), activeSessions.size());
+    boolean register(String sessionId, String userId, long nowMs) {
+        // Enforce hard cap — evict stale entries first, then reject if still full
+        if (sessionCount.get() >= maxTrackedSessions) {
+            evictStaleSessions(nowMs);
+            if (sessionCount.get() >= maxTrackedSessions) {
+                log.warn("Session registry at capacity ({}), cannot track session {} for user {}",
+                        maxTrackedSessions, sessionId, userId);
+                return false;
+            }
         }
+
+        long tick = nowMs / TICK_MS;
+        if (shardOf(sessionId).putIfAbsent(sessionId, new SessionInfo(userId, tick)) != null) return false;
+        sessionCount.incrementAndGet();
+        sessionsByUser.compute(userId, (k, ids) -> append(ids, sessionId));
+        wheel[slotOf(tick)].add(sessionId);
+        log.debug("Session connected: {} (user: {}, active: {})", sessionId, userId, sessionCount.get());
+        return true;
+    }
+
+    void unregister(String sessionId) {
+        SessionInfo removed = shardOf(sessionId).remove(sessionId);
+        if (removed == null) return;
+        release(sessionId, removed);
+        log.debug("Session disconnected: {} (user: {}, active: {})", sessionId, removed.userId(), sessionCount.get());
     }
 
     /**
      * Periodic cleanup of stale sessions that missed disconnect events.
-     * Runs every 5 minutes. Prevents the session map from growing unbounded
-     * if SessionDisconnectEvent is lost (e.g., network partition, JVM pause).
+     * Runs every 5 minutes and advances the timing wheel to the current cutoff,
+     * visiting only the slots whose sessions have crossed the staleness threshold.
      */
-    @Scheduled(fixedRate = 300_000) // 5 minutes
+    @Scheduled(fixedRate = TICK_MS)
     public void evictStaleSessions() {
-        if (activeSessions.isEmpty()) return;
+        evictStaleSessions(System.currentTimeMillis());
+    }
 
-        long cutoff = System.currentTimeMillis() - STALE_SESSION_THRESHOLD_MS;
+    synchronized void evictStaleSessions(long nowMs) {
+        long cutoffTick = (nowMs - STALE_SESSION_THRESHOLD_MS) / TICK_MS;
+        // Never walk more than one lap; older ticks share slots with the ones we do visit.
+        long from = Math.max(sweptTick + 1, cutoffTick - WHEEL_SLOTS + 1);
         int removed = 0;
-
-        Iterator<Map.Entry<String, SessionInfo>> it = activeSessions.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, SessionInfo> entry = it.next();
-            if (entry.getValue().connectedAt().toEpochMilli() < cutoff) {
-                it.remove();
-                removed++;
+        for (long tick = from; tick <= cutoffTick; tick++) {
+            Set<String> slot = wheel[slotOf(tick)];
+            for (String sessionId : slot) {
+                ConcurrentHashMap<String, SessionInfo> shard = shardOf(sessionId);
+                SessionInfo info = shard.get(sessionId);
+                if (info == null) {
+                    slot.remove(sessionId);
+                } else if (info.connectedTick() <= cutoffTick && shard.remove(sessionId, info)) {
+                    release(sessionId, info);
+                    removed++;
+                }
             }
         }
+        if (cutoffTick > sweptTick) sweptTick = cutoffTick;
 
         if (removed > 0) {
-            log.info("Evicted {} stale WebSocket session entries, {} remaining", removed, activeSessions.size());
+            log.info("Evicted {} stale WebSocket session entries, {} remaining", removed, sessionCount.get());
         }
     }
 
     // Current number of tracked active sessions. Exposed for health checks and testing.
     public int getActiveSessionCount() {
-        return activeSessions.size();
+        return sessionCount.get();
+    }
+
+    // Number of distinct users with a session on this node.
+    public int getConnectedUserCount() {
+        return sessionsByUser.size();
+    }
+
+    // True if the user has at least one session connected to this node.
+    public boolean isConnected(String userId) {
+        return userId != null && sessionsByUser.containsKey(userId);
+    }
+
+    // Ids of the user's sessions on this node; empty if none.
+    public List<String> sessionsOf(String userId) {
+        String[] ids = userId != null ? sessionsByUser.get(userId) : null;
+        return ids != null ? List.of(ids) : List.of();
+    }
+
+    public int sessionCountOf(String userId) {
+        String[] ids = userId != null ? sessionsByUser.get(userId) : null;
+        return ids != null ? ids.length : 0;
+    }
+
+    // Owner of a session on this node, or null if it is not tracked.
+    public String userOf(String sessionId) {
+        SessionInfo info = sessionId != null ? shardOf(sessionId).get(sessionId) : null;
+        return info != null ? info.userId() : null;
+    }
+
+    private void release(String sessionId, SessionInfo info) {
+        sessionCount.decrementAndGet();
+        wheel[slotOf(info.connectedTick())].remove(sessionId);
+        sessionsByUser.computeIfPresent(info.userId(), (k, ids) -> without(ids, sessionId));
+    }
+
+    private ConcurrentHashMap<String, SessionInfo> shardOf(String sessionId) {
+        int h = sessionId.hashCode();
+        return shards[(h ^ (h >>> 16)) & shardMask];
+    }
+
+    private static int slotOf(long tick) {
+        return (int) (tick % WHEEL_SLOTS);
+    }
+
+    private static String[] append(String[] ids, String sessionId) {
+        if (ids == null) return new String[]{sessionId};
+        String[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = sessionId;
+        return grown;
+    }
+
+    // Returns null once the last session is gone, which drops the user from the index.
+    private static String[] without(String[] ids, String sessionId) {
+        int index = -1;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i].equals(sessionId)) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) return ids;
+        if (ids.length == 1) return null;
+        String[] shrunk = new String[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, index);
+        System.arraycopy(ids, index + 1, shrunk, index, ids.length - index - 1);
+        return shrunk;
     }
 
-    private record SessionInfo(String userId, Instant connectedAt) {}
+    private record SessionInfo(String userId, long connectedTick) {}
 }
@@ -0,0 +1,298 @@
+package com.blink.chatservice.websocket.backpressure;
+
+import com.blink.chatservice.websocket.config.SlowConsumerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Slow-consumer policy for outbound STOMP frames.
+// Each session's backlog is the number of frames accepted onto the client outbound channel but not yet
+// written to its socket: counted up here in preSend, and down by a session decorator installed under
+// Spring's ConcurrentWebSocketSessionDecorator. As the backlog grows the session moves through tiers:
+//   drop        typing, presence and receipt frames are discarded (typing snapshots supersede each
+//               other; presence can be re-read from /api/v1/users/me/peers/online)
+//   digest      message frames are held and flushed as one JSON-array frame per subscription
+//               ("digest: <count>" header) once the backlog drains. Only for sessions that sent
+//               "accept-digest: true" on CONNECT; other sessions keep getting single frames here
+//               until they reach the disconnect tier
+//   disconnect  the socket is closed with SESSION_NOT_RELIABLE; the client reconnects and resumes
+// instead of pinning a broker thread until the 15s send time limit.
+//   chat.ws.slow_consumer.actions{tier}   frames dropped / frames digested / sessions disconnected
+//   chat.ws.slow_consumer.sessions{tier}  sessions currently in each tier
+@Slf4j
+@Component
+public class SlowConsumerPolicy implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public static final String DIGEST_HEADER = "digest";
+    public static final String ACCEPT_DIGEST_HEADER = "accept-digest";
+
+    public enum Tier { NORMAL, DROP, DIGEST, DISCONNECT }
+
+    enum Priority { LOW, MESSAGE, CRITICAL }
+
+    private final SlowConsumerConfig config;
+    private final MessageChannel clientOutboundChannel;
+    private final ConcurrentHashMap<String, SessionBacklog> sessions = new ConcurrentHashMap<>();
+
+    private final Counter dropped;
+    private final Counter digested;
+    private final Counter disconnected;
+
+    public SlowConsumerPolicy(SlowConsumerConfig config,
+                              @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.dropped = action(meterRegistry, "drop");
+        this.digested = action(meterRegistry, "digest");
+        this.disconnected = action(meterRegistry, "disconnect");
+        for (Tier tier : Tier.values()) {
+            Gauge.builder("chat.ws.slow_consumer.sessions", this, p -> p.sessionsIn(tier))
+                    .tag("tier", tier.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Counter action(MeterRegistry registry, String tier) {
+        return Counter.builder("chat.ws.slow_consumer.actions").tag("tier", tier).register(registry);
+    }
+
+    // --- backlog in: frames entering the client outbound channel ---
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        SessionBacklog backlog = sessionId != null ? sessions.get(sessionId) : null;
+        if (backlog == null || !config.isEnabled()) return message;
+        if (backlog.closing.get()) return null;
+
+        if (accessor.getCommand() == StompCommand.MESSAGE && accessor.getFirstNativeHeader(DIGEST_HEADER) == null) {
+            Tier tier = tierOf(backlog);
+            if (tier == Tier.DISCONNECT) {
+                disconnect(backlog, "backlog of " + backlog.pending.get() + " frames");
+                return null;
+            }
+            Priority priority = classify(accessor);
+            if (priority == Priority.LOW && tier != Tier.NORMAL) {
+                dropped.increment();
+                return null;
+            }
+            // Once a subscription has held frames, later ones queue behind them to keep order.
+            String subscriptionId = accessor.getSubscriptionId();
+            if (priority == Priority.MESSAGE && backlog.acceptsDigest && subscriptionId != null && message.getPayload() instanceof byte[]
+                    && (tier == Tier.DIGEST || backlog.isHolding(subscriptionId))) {
+                if (backlog.hold(subscriptionId, message) > config.getMaxHeld()) {
+                    disconnect(backlog, "more than " + config.getMaxHeld() + " held frames");
+                } else {
+                    digested.increment();
+                }
+                return null;
+            }
+        }
+        backlog.pending.incrementAndGet();
+        return message;
+    }
+
+    // Registered on the client inbound channel: records whether the client can unpack digest frames.
+    public ChannelInterceptor connectNegotiation() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                StompCommand command = accessor.getCommand();
+                String sessionId = accessor.getSessionId();
+                if ((command == StompCommand.CONNECT || command == StompCommand.STOMP) && sessionId != null) {
+                    SessionBacklog backlog = sessions.get(sessionId);
+                    String accept = accessor.getFirstNativeHeader(ACCEPT_DIGEST_HEADER);
+                    if (backlog != null) backlog.acceptsDigest = accept != null && "true".equalsIgnoreCase(accept.trim());
+                }
+                return message;
+            }
+        };
+    }
+
+    Tier tierOf(SessionBacklog backlog) {
+        int pending = backlog.pending.get();
+        if (pending >= config.getDisconnectAt()) return Tier.DISCONNECT;
+        if (pending >= config.getDigestAt()) return Tier.DIGEST;
+        if (pending >= config.getDropAt()) return Tier.DROP;
+        return Tier.NORMAL;
+    }
+
+    // User frames arrive resolved to "/queue/presence-user<sessionId>"; the subscribed destination
+    // ("/user/queue/presence") rides along in simpOrigDestination.
+    static Priority classify(SimpMessageHeaderAccessor accessor) {
+        Object original = accessor.getHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        String destination = original instanceof String subscribed ? subscribed : accessor.getDestination();
+        MimeType contentType = accessor.getContentType();
+        if (destination == null) return Priority.CRITICAL;
+        if (destination.equals("/user/queue/presence") || destination.endsWith("/typing") || destination.endsWith("/receipts")) {
+            return Priority.LOW;
+        }
+        // Only JSON frames can be merged into an array digest.
+        boolean json = contentType == null || MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType);
+        boolean conversationTopic = destination.startsWith("/topic/conversations/")
+                && destination.indexOf('/', "/topic/conversations/".length()) < 0;
+        if (json && (conversationTopic || destination.equals("/user/queue/messages"))) return Priority.MESSAGE;
+        return Priority.CRITICAL;
+    }
+
+    // --- digests: held frames go out once the backlog has drained below the digest tier ---
+
+    @Scheduled(fixedDelayString = "${app.websocket.slow-consumer.flush-ms:250}")
+    public void flushDigests() {
+        for (SessionBacklog backlog : sessions.values()) {
+            if (backlog.closing.get() || tierOf(backlog).compareTo(Tier.DIGEST) >= 0) continue;
+            for (List<Message<?>> held : backlog.drain()) {
+                try {
+                    clientOutboundChannel.send(digest(held));
+                } catch (Exception e) {
+                    log.warn("Failed to send digest to session {}: {}", backlog.session.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // One frame carrying the held payloads as a JSON array, addressed like the newest of them
+    // (so its seq, if any, is the one the client resumes from).
+    static Message<byte[]> digest(List<Message<?>> held) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write('[');
+        for (int i = 0; i < held.size(); i++) {
+            if (i > 0) body.write(',');
+            body.write((byte[]) held.get(i).getPayload());
+        }
+        body.write(']');
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(held.get(held.size() - 1));
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setNativeHeader(DIGEST_HEADER, String.valueOf(held.size()));
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body.toByteArray(), headers.getMessageHeaders());
+    }
+
+    private void disconnect(SessionBacklog backlog, String reason) {
+        if (!backlog.closing.compareAndSet(false, true)) return;
+        disconnected.increment();
+        log.info("Closing slow WebSocket session {}: {}", backlog.session.getId(), reason);
+        try {
+            backlog.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Closing session {} failed: {}", backlog.session.getId(), e.getMessage());
+        }
+    }
+
+    private int sessionsIn(Tier tier) {
+        int count = 0;
+        for (SessionBacklog backlog : sessions.values()) {
+            if (tierOf(backlog) == tier) count++;
+        }
+        return count;
+    }
+
+    // --- backlog out: frames actually written to the socket ---
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionBacklog backlog = new SessionBacklog(session);
+                sessions.put(session.getId(), backlog);
+                super.afterConnectionEstablished(new CountingSession(session, backlog));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    SessionBacklog register(WebSocketSession session) {
+        return sessions.computeIfAbsent(session.getId(), id -> new SessionBacklog(session));
+    }
+
+    private static final class CountingSession extends WebSocketSessionDecorator {
+        private final SessionBacklog backlog;
+
+        private CountingSession(WebSocketSession session, SessionBacklog backlog) {
+            super(session);
+            this.backlog = backlog;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                // Frames the handler writes without the outbound channel (ERROR on a bad inbound frame)
+                // were never counted in, hence the floor at zero.
+                backlog.pending.updateAndGet(n -> n > 0 ? n - 1 : 0);
+            }
+        }
+    }
+
+    static final class SessionBacklog {
+        final WebSocketSession session;
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean closing = new AtomicBoolean();
+        volatile boolean acceptsDigest;
+        // subscriptionId -> held message frames, oldest first
+        private final Map<String, List<Message<?>>> held = new LinkedHashMap<>();
+        private int heldCount;
+
+        SessionBacklog(WebSocketSession session) {
+            this.session = session;
+        }
+
+        synchronized boolean isHolding(String subscriptionId) {
+            return held.containsKey(subscriptionId);
+        }
+
+        synchronized int hold(String subscriptionId, Message<?> message) {
+            held.computeIfAbsent(subscriptionId, k -> new ArrayList<>()).add(message);
+            return ++heldCount;
+        }
+
+        synchronized List<List<Message<?>>> drain() {
+            if (held.isEmpty()) return List.of();
+            List<List<Message<?>>> batches = new ArrayList<>(held.values());
+            held.clear();
+            heldCount = 0;
+            return batches;
+        }
+    }
+}
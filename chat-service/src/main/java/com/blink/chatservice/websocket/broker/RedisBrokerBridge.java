@@ -0,0 +1,149 @@
+package com.blink.chatservice.websocket.broker;
+
+import com.blink.chatservice.websocket.config.BrokerConfig;
+import com.blink.chatservice.websocket.replay.MessageReplayBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cross-node delivery for app.websocket.broker.mode=redis.
+// Sits on the brokerChannel, underneath SimpMessagingTemplate: every /topic or (unresolved) /user send
+// made on this node, whether from convertAndSend, convertAndSendToUser or @SendTo, is also published
+// to Redis, and every envelope from another node is replayed into the local brokerChannel. The local
+// simple broker and UserDestinationMessageHandler then deliver to whoever is connected here.
+// Topic and user traffic use separate Redis channels ({redisChannel}:topic / :user), each with its own
+// published/received/failed counters and a hop-latency timer.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.websocket.broker", name = "mode", havingValue = "redis")
+public class RedisBrokerBridge implements ChannelInterceptor, MessageListener {
+
+    // Marks replayed messages so they are delivered locally but not published again.
+    static final String BRIDGED_HEADER = "x-bridged-from";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MessageChannel brokerChannel;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final Map<String, RelayChannel> channels;
+
+    public RedisBrokerBridge(StringRedisTemplate redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                             ObjectMapper objectMapper,
+                             BrokerConfig brokerConfig,
+                             MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.brokerChannel = brokerChannel;
+        this.objectMapper = objectMapper;
+        this.nodeId = brokerConfig.getNodeId();
+        this.channels = Map.of(
+                "topic", new RelayChannel(brokerConfig.getRedisChannel() + ":topic", "topic", meterRegistry),
+                "user", new RelayChannel(brokerConfig.getRedisChannel() + ":user", "user", meterRegistry));
+    }
+
+    @PostConstruct
+    void subscribe() {
+        channels.values().forEach(c -> listenerContainer.addMessageListener(this, new ChannelTopic(c.name())));
+        log.info("Redis broker bridge active on {} as node {}", channels.values().stream().map(RelayChannel::name).toList(), nodeId);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) return message;
+        if (accessor.getHeader(BRIDGED_HEADER) != null) return message;
+        String destination = accessor.getDestination();
+        if (destination == null || !(destination.startsWith("/topic/") || destination.startsWith("/user/"))) return message;
+        if (!(message.getPayload() instanceof byte[] payload)) return message;
+
+        RelayChannel relay = channels.get(destination.startsWith("/user/") ? "user" : "topic");
+        try {
+            MimeType contentType = accessor.getContentType();
+            RelayEnvelope envelope = new RelayEnvelope(nodeId, destination, contentType != null ? contentType.toString() : null,
+                    payload, System.currentTimeMillis(), accessor.getFirstNativeHeader(MessageReplayBuffer.SEQ_HEADER));
+            redisTemplate.convertAndSend(relay.name(), objectMapper.writeValueAsString(envelope));
+            relay.published().increment();
+        } catch (Exception e) {
+            // Local delivery still happens; only other nodes miss this frame.
+            relay.failed().increment();
+            log.warn("Failed to relay {} to other nodes: {}", destination, e.getMessage());
+        }
+        return message;
+    }
+
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        RelayChannel relay = channelNamed(new String(message.getChannel(), StandardCharsets.UTF_8));
+        try {
+            RelayEnvelope envelope = objectMapper.readValue(message.getBody(), RelayEnvelope.class);
+            if (nodeId.equals(envelope.nodeId())) return;
+            brokerChannel.send(toLocalMessage(envelope));
+            if (relay != null) {
+                relay.received().increment();
+                relay.hopLatency().record(Math.max(0, System.currentTimeMillis() - envelope.sentAtMs()), TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            if (relay != null) relay.failed().increment();
+            log.warn("Dropping malformed broker relay envelope: {}", e.getMessage());
+        }
+    }
+
+    private RelayChannel channelNamed(String name) {
+        for (RelayChannel c : channels.values()) {
+            if (c.name().equals(name)) return c;
+        }
+        return null;
+    }
+
+    static Message<byte[]> toLocalMessage(RelayEnvelope envelope) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        accessor.setHeader(BRIDGED_HEADER, envelope.nodeId());
+        if (envelope.seq() != null) accessor.setNativeHeader(MessageReplayBuffer.SEQ_HEADER, envelope.seq());
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders());
+    }
+
+    // seq is the replay buffer's id for user frames, so clients can resume whichever node delivered them.
+    record RelayEnvelope(String nodeId, String destination, String contentType, byte[] payload, long sentAtMs, String seq) {}
+
+    private record RelayChannel(String name, Counter published, Counter received, Counter failed, Timer hopLatency) {
+
+        RelayChannel(String name, String kind, MeterRegistry registry) {
+            this(name,
+                    Counter.builder("chat.broker.relay.published").tag("channel", kind).register(registry),
+                    Counter.builder("chat.broker.relay.received").tag("channel", kind).register(registry),
+                    Counter.builder("chat.broker.relay.failed").tag("channel", kind).register(registry),
+                    Timer.builder("chat.broker.relay.hop").tag("channel", kind)
+                            .description("Publish-to-replay latency between nodes")
+                            .publishPercentileHistogram()
+                            .register(registry));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.blink.chatservice.websocket.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-session payload encoding for STOMP.
+// A client opts in by sending "payload-encoding: cbor" on CONNECT. Application code keeps producing
+// JSON; MESSAGE frames bound for an opted-in session are re-encoded as CBOR on the outbound channel
+// and sent as binary frames (content-type application/octet-stream, payload-encoding: cbor), since
+// Spring only emits binary WebSocket frames for octet-stream. Such clients may also SEND with
+// content-type application/cbor, which cborMessageConverter() decodes for @MessageMapping handlers.
+// SockJS cannot carry binary frames, so SockJS sessions always stay on JSON.
+@Slf4j
+@Component
+public class StompPayloadCodec implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    static final String SOCKJS_ATTRIBUTE = "stomp.sockjs";
+
+    public enum Encoding { JSON, CBOR }
+
+    private final ObjectMapper objectMapper;
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final ConcurrentHashMap<String, Encoding> sessionEncodings = new ConcurrentHashMap<>();
+
+    // The simple broker hands the same payload array to every subscriber of a topic,
+    // so a broadcast to N CBOR sessions is transcoded once.
+    private volatile Transcoded lastTranscoded;
+
+    public StompPayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // Registered on both client channels: CONNECT/DISCONNECT arrive inbound, MESSAGE frames leave outbound.
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        String sessionId = accessor.getSessionId();
+        if (command == null || sessionId == null) return message;
+
+        switch (command) {
+            case CONNECT, STOMP -> {
+                Encoding encoding = negotiate(accessor);
+                if (encoding != Encoding.JSON) sessionEncodings.put(sessionId, encoding);
+            }
+            case DISCONNECT -> sessionEncodings.remove(sessionId);
+            case MESSAGE -> {
+                if (sessionEncodings.get(sessionId) == Encoding.CBOR) return toCbor(message, accessor);
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    public Encoding encodingOf(String sessionId) {
+        return sessionEncodings.getOrDefault(sessionId, Encoding.JSON);
+    }
+
+    private Encoding negotiate(StompHeaderAccessor accessor) {
+        String requested = accessor.getFirstNativeHeader(ENCODING_HEADER);
+        if (requested == null || !"cbor".equalsIgnoreCase(requested.trim())) return Encoding.JSON;
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null && Boolean.TRUE.equals(attributes.get(SOCKJS_ATTRIBUTE))) {
+            log.debug("Session {} asked for CBOR over SockJS; keeping JSON", accessor.getSessionId());
+            return Encoding.JSON;
+        }
+        return Encoding.CBOR;
+    }
+
+    private Message<?> toCbor(Message<?> message, StompHeaderAccessor accessor) {
+        if (!(message.getPayload() instanceof byte[] json) || json.length == 0) return message;
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null && !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) return message;
+
+        byte[] cbor;
+        try {
+            cbor = transcode(json);
+        } catch (Exception e) {
+            // Clients fall back on the content-type, so a frame we cannot re-encode still goes out as JSON.
+            log.warn("Failed to CBOR-encode frame for {}: {}", accessor.getDestination(), e.getMessage());
+            return message;
+        }
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
+        headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        headers.setNativeHeader(ENCODING_HEADER, "cbor");
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(cbor, headers.getMessageHeaders());
+    }
+
+    private byte[] transcode(byte[] json) throws Exception {
+        Transcoded last = lastTranscoded;
+        if (last != null && last.source() == json) return last.cbor();
+        JsonNode tree = objectMapper.readTree(json);
+        byte[] cbor = cborMapper.writeValueAsBytes(tree);
+        lastTranscoded = new Transcoded(json, cbor);
+        return cbor;
+    }
+
+    // Decodes SEND frames with content-type application/cbor. Strict matching keeps it from being
+    // picked for outbound sends, which carry no content-type and must stay JSON.
+    public static MappingJackson2MessageConverter cborMessageConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(APPLICATION_CBOR);
+        converter.setObjectMapper(new CBORMapper().findAndRegisterModules());
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    // Marks sessions opened through a SockJS endpoint so they are never switched to binary frames.
+    public static HandshakeInterceptor sockJsMarker() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                attributes.put(SOCKJS_ATTRIBUTE, true);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    private record Transcoded(byte[] source, byte[] cbor) {}
+}
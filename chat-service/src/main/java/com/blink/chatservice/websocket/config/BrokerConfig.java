@@ -0,0 +1,44 @@
+package com.blink.chatservice.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.websocket.broker")
+public class BrokerConfig {
+
+    public enum Mode {
+        // In-memory broker; subscriptions live in this JVM only. Fine for a single replica.
+        SIMPLE,
+        // Full STOMP relay to RabbitMQ / ActiveMQ / Artemis; the external broker owns subscriptions.
+        RELAY,
+        // In-memory broker per node, with /topic and /user sends mirrored to the other nodes over Redis pub/sub.
+        REDIS
+    }
+
+    private Mode mode = Mode.SIMPLE;
+
+    // Identifies this replica on the Redis bridge so a node never re-delivers its own sends.
+    // Defaults to a random id; set it to the pod name for readable logs and metrics.
+    private String nodeId = UUID.randomUUID().toString();
+
+    // Prefix of the Redis bridge channels; ":topic" and ":user" are appended.
+    private String redisChannel = "chat:broker:relay";
+
+    private Relay relay = new Relay();
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+    }
+}
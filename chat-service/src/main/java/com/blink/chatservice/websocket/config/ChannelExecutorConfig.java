@@ -0,0 +1,37 @@
+package com.blink.chatservice.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.websocket.channels")
+public class ChannelExecutorConfig {
+
+    // clientInboundChannel: runs @MessageMapping handlers, which do blocking Mongo I/O on send.
+    private Pool inbound = new Pool(8, 32, 1000);
+
+    // clientOutboundChannel: writes frames to sessions; cheap per task but high volume.
+    private Pool outbound = new Pool(4, 16, 2000);
+
+    @Data
+    public static class Pool {
+        private int corePoolSize;
+        private int maxPoolSize;
+        private int queueCapacity;
+        private int keepAliveSeconds = 60;
+        // Runs each task on a virtual thread, with maxPoolSize as the concurrency limit.
+        // Needs a Java 21+ runtime; on older runtimes the thread pool is used instead.
+        private boolean virtualThreads = false;
+
+        public Pool() {
+        }
+
+        public Pool(int corePoolSize, int maxPoolSize, int queueCapacity) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.blink.chatservice.websocket.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+
+// Handshake handler for the native /ws endpoints.
+// The container (Tomcat) only installs the extensions this handler lets through, so dropping
+// permessage-deflate here is what turns compression off. Each handshake is counted as
+//   chat.ws.handshakes{compression=on|off}
+// so we can see how many clients actually negotiate it.
+@Component
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final WebSocketCompressionConfig config;
+    private final Counter compressed;
+    private final Counter uncompressed;
+
+    public CompressionHandshakeHandler(WebSocketCompressionConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.compressed = Counter.builder("chat.ws.handshakes").tag("compression", "on").register(meterRegistry);
+        this.uncompressed = Counter.builder("chat.ws.handshakes").tag("compression", "off").register(meterRegistry);
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (!config.isEnabled()) {
+            accepted = accepted.stream().filter(ext -> !isDeflate(ext)).toList();
+        }
+        if (accepted.stream().anyMatch(CompressionHandshakeHandler::isDeflate)) compressed.increment();
+        else uncompressed.increment();
+        return accepted;
+    }
+
+    private static boolean isDeflate(WebSocketExtension extension) {
+        return PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName());
+    }
+}
@@ -0,0 +1,27 @@
+package com.blink.chatservice.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.websocket.replay")
+public class ReplayConfig {
+
+    // Record per-user frames in Redis so a reconnecting client can resume instead of re-fetching.
+    private boolean enabled = true;
+
+    // Frames kept per user (approximate; Redis trims whole stream nodes).
+    private int maxFrames = 200;
+
+    // Streams of users who receive nothing for this long are dropped; refreshed on every frame.
+    private Duration ttl = Duration.ofMinutes(15);
+
+    // User destinations worth resuming. Presence and new-conversation notices are re-read over REST
+    // on reconnect, so buffering them would only cost a Redis write per frame.
+    private Set<String> destinations = Set.of("/queue/messages", "/queue/messages/batch");
+}
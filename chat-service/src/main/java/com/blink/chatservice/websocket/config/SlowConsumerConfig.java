@@ -0,0 +1,24 @@
+package com.blink.chatservice.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.websocket.slow-consumer")
+public class SlowConsumerConfig {
+
+    private boolean enabled = true;
+
+    // Tiers, in frames queued for a session but not yet written to its socket.
+    // Past drop-at, typing/presence/receipt frames are discarded.
+    private int dropAt = 16;
+    // Past digest-at, message frames are held and later sent as one JSON array per subscription,
+    // for sessions that negotiated "accept-digest: true" on CONNECT.
+    private int digestAt = 48;
+    // Past disconnect-at (or with more than max-held frames held) the session is closed.
+    // Both trip well before the transport's 512KB send buffer limit would.
+    private int disconnectAt = 256;
+    private int maxHeld = 500;
+}
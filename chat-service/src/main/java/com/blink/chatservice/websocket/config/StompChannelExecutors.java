@@ -0,0 +1,123 @@
+package com.blink.chatservice.websocket.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executors behind the STOMP client inbound/outbound channels.
+// Spring's defaults size these to the CPU count with unbounded queues, so a slow Mongo write in
+// ChatWsController silently backs up every socket. Here both are bounded and metered:
+//   chat.ws.channel.queue.size   tasks waiting for a thread (thread-pool mode)
+//   chat.ws.channel.active       tasks currently running
+//   chat.ws.channel.queue.wait   time from submit to start
+//   chat.ws.channel.rejected     submits that found the pool and queue full
+// A full pool runs the task on the submitting thread (the socket's reader for inbound), which slows
+// that one connection down instead of dropping frames.
+@Slf4j
+@Component
+public class StompChannelExecutors implements DisposableBean {
+
+    private final Executor inbound;
+    private final Executor outbound;
+
+    public StompChannelExecutors(ChannelExecutorConfig config, MeterRegistry meterRegistry) {
+        this.inbound = create("inbound", config.getInbound(), meterRegistry);
+        this.outbound = create("outbound", config.getOutbound(), meterRegistry);
+    }
+
+    public Executor inbound() {
+        return inbound;
+    }
+
+    public Executor outbound() {
+        return outbound;
+    }
+
+    static Executor create(String channel, ChannelExecutorConfig.Pool pool, MeterRegistry meterRegistry) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("chat.ws.channel.active", active, AtomicInteger::get)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        TaskDecorator metered = meteredDecorator(channel, active, meterRegistry);
+
+        if (pool.isVirtualThreads()) {
+            if (Runtime.version().feature() >= 21) {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-" + channel + "-");
+                executor.setVirtualThreads(true);
+                // Throttles (blocks) the submitter once this many tasks are running.
+                executor.setConcurrencyLimit(pool.getMaxPoolSize());
+                executor.setTaskDecorator(metered);
+                return executor;
+            }
+            log.warn("Virtual threads requested for the {} channel but the runtime is Java {}; using a thread pool",
+                    channel, Runtime.version().feature());
+        }
+
+        Counter rejected = Counter.builder("chat.ws.channel.rejected")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        ThreadPoolExecutor.CallerRunsPolicy callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.getCorePoolSize());
+        executor.setMaxPoolSize(Math.max(pool.getCorePoolSize(), pool.getMaxPoolSize()));
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds(pool.getKeepAliveSeconds());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("ws-" + channel + "-");
+        executor.setTaskDecorator(metered);
+        executor.setRejectedExecutionHandler((task, tpe) -> {
+            rejected.increment();
+            callerRuns.rejectedExecution(task, tpe);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(15);
+        executor.initialize();
+
+        Gauge.builder("chat.ws.channel.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("chat.ws.channel.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private static TaskDecorator meteredDecorator(String channel, AtomicInteger active, MeterRegistry meterRegistry) {
+        Timer queueWait = Timer.builder("chat.ws.channel.queue.wait")
+                .tag("channel", channel)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return task -> {
+            long submitted = System.nanoTime();
+            return () -> {
+                queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            };
+        };
+    }
+
+    @Override
+    public void destroy() {
+        for (Executor executor : new Executor[]{inbound, outbound}) {
+            if (executor instanceof ThreadPoolTaskExecutor pool) pool.shutdown();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.blink.chatservice.websocket.config;
 
 import java.util.Arrays;
+import java.util.List;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.TaskScheduler;
@@ -13,6 +16,13 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 import com.blink.chatservice.websocket.WebSocketAuthChannelInterceptor;
+import com.blink.chatservice.websocket.WebSocketPresenceListener;
+import com.blink.chatservice.websocket.backpressure.SlowConsumerPolicy;
+import com.blink.chatservice.websocket.broker.RedisBrokerBridge;
+import com.blink.chatservice.websocket.codec.StompPayloadCodec;
+import com.blink.chatservice.websocket.metrics.StompTrafficMetrics;
+import com.blink.chatservice.websocket.replay.MessageReplayBuffer;
+import com.blink.chatservice.websocket.replay.SessionResumeInterceptor;
 
 import lombok.RequiredArgsConstructor;
 
@@ -23,6 +33,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
     private final TaskScheduler heartTaskScheduler;
+    private final BrokerConfig brokerConfig;
+    private final ObjectProvider<RedisBrokerBridge> redisBrokerBridge;
+    private final StompChannelExecutors channelExecutors;
+    private final StompPayloadCodec payloadCodec;
+    private final StompTrafficMetrics trafficMetrics;
+    private final CompressionHandshakeHandler compressionHandshakeHandler;
+    private final MessageReplayBuffer replayBuffer;
+    private final SessionResumeInterceptor sessionResumeInterceptor;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final WebSocketPresenceListener presenceListener;
 
     @Value("${app.cors.allowed-origins}")
     private String allowedOriginsRaw;
@@ -40,24 +60,36 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         String[] origins = parseOrigins();
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns(origins)
+                .addInterceptors(StompPayloadCodec.sockJsMarker())
                 .withSockJS();
         // Also register without SockJS for native WebSocket clients
         registry.addEndpoint("/ws")
-                .setAllowedOriginPatterns(origins);
+                .setAllowedOriginPatterns(origins)
+                .setHandshakeHandler(compressionHandshakeHandler);
 
         // Some platforms route only versioned API paths to the backend.
         // Expose a versioned websocket endpoint as an alias to reduce routing brittleness.
         registry.addEndpoint("/api/v1/ws")
             .setAllowedOriginPatterns(origins)
+            .addInterceptors(StompPayloadCodec.sockJsMarker())
             .withSockJS();
         registry.addEndpoint("/api/v1/ws")
-            .setAllowedOriginPatterns(origins);
+            .setAllowedOriginPatterns(origins)
+            .setHandshakeHandler(compressionHandshakeHandler);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
+        // The replay buffer numbers user frames first, so the Redis bridge (redis mode only) relays the seq too.
+        registry.configureBrokerChannel().interceptors(replayBuffer);
+        redisBrokerBridge.ifAvailable(bridge -> registry.configureBrokerChannel().interceptors(bridge));
+
+        if (brokerConfig.getMode() == BrokerConfig.Mode.RELAY) {
+            configureBrokerRelay(registry);
+            return;
+        }
 
         // Configure the simple broker with memory-safe limits.
         // Without these, the in-memory broker can accumulate unbounded send buffers
@@ -70,10 +102,46 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setTaskScheduler(heartTaskScheduler);
     }
 
+    // Subscriptions live in the external broker, so any replica can deliver to any client.
+    // User destinations a node cannot resolve locally are re-broadcast so the node holding
+    // that user's session picks them up; the user registry is shared the same way.
+    private void configureBrokerRelay(MessageBrokerRegistry registry) {
+        BrokerConfig.Relay relay = brokerConfig.getRelay();
+        var relayRegistration = registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relay.getHost())
+                .setRelayPort(relay.getPort())
+                .setClientLogin(relay.getClientLogin())
+                .setClientPasscode(relay.getClientPasscode())
+                .setSystemLogin(relay.getSystemLogin())
+                .setSystemPasscode(relay.getSystemPasscode())
+                .setSystemHeartbeatSendInterval(10000)
+                .setSystemHeartbeatReceiveInterval(10000)
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+        if (relay.getVirtualHost() != null) relayRegistration.setVirtualHost(relay.getVirtualHost());
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         // Injecting auth interceptor to validate JWT on CONNECT frame.
-        registration.interceptors(webSocketAuthChannelInterceptor);
+        registration.interceptors(webSocketAuthChannelInterceptor, payloadCodec, trafficMetrics, sessionResumeInterceptor,
+                presenceListener, slowConsumerPolicy.connectNegotiation());
+        registration.executor(channelExecutors.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Sheds or digests frames for backed-up sessions first, then re-encodes MESSAGE frames for
+        // sessions that negotiated CBOR on CONNECT, then meters what each session actually receives.
+        registration.interceptors(slowConsumerPolicy, payloadCodec, trafficMetrics);
+        registration.executor(channelExecutors.outbound());
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Only matches content-type application/cbor; JSON stays the default for everything else.
+        messageConverters.add(StompPayloadCodec.cborMessageConverter());
+        return true;
     }
 
     @Override
@@ -83,5 +151,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setMessageSizeLimit(128 * 1024);      // 128KB max per STOMP message
         registry.setSendBufferSizeLimit(512 * 1024);    // 512KB max send buffer per session
         registry.setSendTimeLimit(15 * 1000);            // 15s to flush send buffer before disconnect
+        // Tracks each session's unwritten backlog so SlowConsumerPolicy can shed load before these limits hit.
+        registry.addDecoratorFactory(slowConsumerPolicy);
     }
 }
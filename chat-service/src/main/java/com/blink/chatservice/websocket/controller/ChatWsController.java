@@ -2,19 +2,22 @@ package com.blink.chatservice.websocket.controller;
 
 import com.blink.chatservice.ai.service.AiService;
 import com.blink.chatservice.chat.service.ChatService;
+import com.blink.chatservice.chat.service.ReadReceiptService;
+import com.blink.chatservice.websocket.dto.MarkReadRequest;
+import com.blink.chatservice.websocket.dto.ReactionRequest;
 import com.blink.chatservice.websocket.dto.RealtimeMessageRequest;
 import com.blink.chatservice.websocket.dto.TypingRequest;
-import com.blink.chatservice.websocket.dto.TypingResponse;
+import com.blink.chatservice.websocket.service.TypingAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Controller
@@ -22,23 +25,26 @@ public class ChatWsController {
 
     private final ChatService chatService;
     private final AiService aiService;
-    private final SimpMessagingTemplate messagingTemplate;
     private final Executor aiToolExecutor;
+    private final ReadReceiptService readReceiptService;
+    private final TypingAggregator typingAggregator;
 
     public ChatWsController(ChatService chatService,
                             AiService aiService,
-                            SimpMessagingTemplate messagingTemplate,
-                            @Qualifier("aiToolExecutor") Executor aiToolExecutor) {
+                            @Qualifier("aiToolExecutor") Executor aiToolExecutor,
+                            ReadReceiptService readReceiptService,
+                            TypingAggregator typingAggregator) {
         this.chatService = chatService;
         this.aiService = aiService;
-        this.messagingTemplate = messagingTemplate;
         this.aiToolExecutor = aiToolExecutor;
+        this.readReceiptService = readReceiptService;
+        this.typingAggregator = typingAggregator;
     }
 
     @MessageMapping("/chat.sendMessage")
     public void sendMessage(@Payload RealtimeMessageRequest request, Principal principal) {
         if (principal == null || request == null) return;
-        chatService.sendMessage(request.conversationId(), principal.getName(), request.body());
+        chatService.sendMessage(request.conversationId(), principal.getName(), request.body(), request.clientMessageId());
     }
 
     @MessageMapping("/ai.chat")
@@ -51,7 +57,8 @@ public class ChatWsController {
         chatService.sendMessage(conversationId, userId, request.body());
 
         try {
-            messagingTemplate.convertAndSend("/topic/conversations/" + conversationId + "/typing", new TypingResponse(conversationId, "ai-assistant", true));
+            // Held until the reply is sent; the TTL only guards against a stuck task.
+            typingAggregator.update(conversationId, "ai-assistant", true, TimeUnit.MINUTES.toMillis(2));
 
             // Offload to dedicated AI thread pool to keep the message broker responsive
             CompletableFuture.runAsync(() -> {
@@ -61,7 +68,7 @@ public class ChatWsController {
                 } catch (RuntimeException e) {
                     log.error("AI chat processing failed", e);
                 } finally {
-                    messagingTemplate.convertAndSend("/topic/conversations/" + conversationId + "/typing", new TypingResponse(conversationId, "ai-assistant", false));
+                    typingAggregator.update(conversationId, "ai-assistant", false);
                 }
             }, aiToolExecutor);
         } catch (Exception e) {
@@ -69,11 +76,23 @@ public class ChatWsController {
         }
     }
 
+    // Typing state goes out as one TypingSnapshot per conversation per flush, not one frame per keystroke.
     @MessageMapping("/chat.typing")
     public void handleTyping(@Payload TypingRequest request, Principal principal) {
         if (principal == null || request == null || request.conversationId() == null) return;
-        
-        messagingTemplate.convertAndSend("/topic/conversations/" + request.conversationId() + "/typing", 
-            new TypingResponse(request.conversationId(), principal.getName(), Boolean.TRUE.equals(request.typing())));
+        typingAggregator.update(request.conversationId(), principal.getName(), Boolean.TRUE.equals(request.typing()));
+    }
+
+    // Clients ack the newest message they have rendered; receipts go out batched on /receipts.
+    @MessageMapping("/chat.markRead")
+    public void markRead(@Payload MarkReadRequest request, Principal principal) {
+        if (principal == null || request == null || request.conversationId() == null) return;
+        readReceiptService.markRead(request.conversationId(), principal.getName(), request.messageId());
+    }
+
+    @MessageMapping("/chat.react")
+    public void react(@Payload ReactionRequest request, Principal principal) {
+        if (principal == null || request == null || request.messageId() == null) return;
+        chatService.reactToMessage(request.messageId(), principal.getName(), request.emoji(), !Boolean.FALSE.equals(request.add()));
     }
 }
@@ -0,0 +1,7 @@
+package com.blink.chatservice.websocket.dto;
+
+// High-water mark acknowledgement: everything up to and including messageId has been read.
+public record MarkReadRequest(
+        String conversationId,
+        String messageId
+) {}
@@ -0,0 +1,30 @@
+package com.blink.chatservice.websocket.dto;
+
+import java.time.LocalDateTime;
+
+// In-place patch for a message clients already have. Only the fields relevant to the type are set:
+// EDITED -> body, editedAt; DELETED -> nothing else; REACTION_ADDED/REACTION_REMOVED -> userId, emoji, count.
+public record MessageDelta(
+        Type type,
+        String conversationId,
+        String messageId,
+        String userId,
+        String body,
+        LocalDateTime editedAt,
+        String emoji,
+        Integer count
+) {
+    public enum Type { EDITED, DELETED, REACTION_ADDED, REACTION_REMOVED }
+
+    public static MessageDelta edited(String conversationId, String messageId, String body, LocalDateTime editedAt) {
+        return new MessageDelta(Type.EDITED, conversationId, messageId, null, body, editedAt, null, null);
+    }
+
+    public static MessageDelta deleted(String conversationId, String messageId) {
+        return new MessageDelta(Type.DELETED, conversationId, messageId, null, null, null, null, null);
+    }
+
+    public static MessageDelta reaction(boolean added, String conversationId, String messageId, String userId, String emoji, int count) {
+        return new MessageDelta(added ? Type.REACTION_ADDED : Type.REACTION_REMOVED, conversationId, messageId, userId, null, null, emoji, count);
+    }
+}
@@ -0,0 +1,9 @@
+package com.blink.chatservice.websocket.dto;
+
+import java.util.List;
+
+// Presence changes among one user's conversation peers since the previous diff.
+public record PresenceDiff(
+        List<String> online,
+        List<String> offline
+) {}
@@ -1,6 +0,0 @@
-package com.blink.chatservice.websocket.dto;
-
-public record PresenceEvent(
-        String userId,
-        boolean online
-) {}
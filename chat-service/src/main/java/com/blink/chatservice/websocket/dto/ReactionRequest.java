@@ -0,0 +1,8 @@
+package com.blink.chatservice.websocket.dto;
+
+public record ReactionRequest(
+        String messageId,
+        String emoji,
+        // false removes the caller's reaction
+        Boolean add
+) {}
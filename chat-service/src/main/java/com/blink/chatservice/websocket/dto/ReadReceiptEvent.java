@@ -0,0 +1,9 @@
+package com.blink.chatservice.websocket.dto;
+
+import java.time.LocalDateTime;
+
+public record ReadReceiptEvent(
+        String userId,
+        String lastReadMessageId,
+        LocalDateTime readAt
+) {}
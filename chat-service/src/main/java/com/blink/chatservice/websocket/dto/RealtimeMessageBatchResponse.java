@@ -0,0 +1,8 @@
+package com.blink.chatservice.websocket.dto;
+
+import java.util.List;
+
+public record RealtimeMessageBatchResponse(
+        String conversationId,
+        List<RealtimeMessageResponse> messages
+) {}
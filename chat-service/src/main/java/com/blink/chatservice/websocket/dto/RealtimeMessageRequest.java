@@ -2,5 +2,7 @@ package com.blink.chatservice.websocket.dto;
 
 public record RealtimeMessageRequest(
         String conversationId,
-        String body
+        String body,
+        // Optional, client-generated; resending with the same value returns the original message.
+        String clientMessageId
 ) {}
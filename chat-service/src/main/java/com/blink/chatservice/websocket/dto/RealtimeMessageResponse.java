@@ -7,6 +7,6 @@ public record RealtimeMessageResponse(
         String senderId,
         String recipientId,
         String body,
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+        String clientMessageId
 ) {}
-
@@ -0,0 +1,9 @@
+package com.blink.chatservice.websocket.dto;
+
+// Outcome of replaying one /user/queue subscription after a RESUME.
+// complete=false means frames older than the replay buffer were lost; re-fetch over REST.
+public record ResumeResult(
+        String destination,
+        int replayed,
+        boolean complete
+) {}
@@ -0,0 +1,9 @@
+package com.blink.chatservice.websocket.dto;
+
+import java.util.List;
+
+// Everyone currently typing in the conversation; an empty list means nobody is.
+public record TypingSnapshot(
+        String conversationId,
+        List<String> userIds
+) {}
@@ -0,0 +1,118 @@
+package com.blink.chatservice.websocket.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.blink.chatservice.websocket.codec.StompPayloadCodec;
+
+// Outbound STOMP traffic accounting, exported through Micrometer:
+//   chat.ws.outbound.frames       MESSAGE frames sent, by destination and encoding
+//   chat.ws.outbound.bytes        payload bytes sent, by destination and encoding
+//   chat.ws.outbound.frame.size   histogram of payload sizes, by destination and encoding
+//   chat.ws.session.outbound.bytes  payload bytes pushed to one session over its lifetime, recorded on disconnect
+// Sizes are STOMP payloads as handed to the transport, i.e. after CBOR re-encoding but before
+// permessage-deflate, so they measure what we produce rather than what crosses the wire.
+// Destinations are reduced to templates ("/topic/conversations/{id}/typing") to keep tag cardinality bounded.
+// User frames reach this channel already resolved to "/queue/messages-user<sessionId>", so they are tagged
+// by the destination the client subscribed to (simpOrigDestination, e.g. "/user/queue/messages").
+@Component
+public class StompTrafficMetrics implements ChannelInterceptor {
+
+    // Topic segments whose next segment is a conversation or user id.
+    private static final Set<String> ID_PARENTS = Set.of("conversations", "user", "video");
+    private static final long MAX_FRAME_BYTES = 128 * 1024;
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary sessionBytes;
+    private final ConcurrentHashMap<String, DestinationMeters> meters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> bytesBySession = new ConcurrentHashMap<>();
+
+    public StompTrafficMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.sessionBytes = DistributionSummary.builder("chat.ws.session.outbound.bytes")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Registered on both client channels: MESSAGE frames leave outbound, DISCONNECT arrives inbound
+    // (the protocol handler synthesizes one when a socket drops without it).
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.MESSAGE && message.getPayload() instanceof byte[] payload) {
+            record(accessor, payload.length);
+        } else if (command == StompCommand.DISCONNECT && accessor.getSessionId() != null) {
+            LongAdder total = bytesBySession.remove(accessor.getSessionId());
+            if (total != null) sessionBytes.record(total.sum());
+        }
+        return message;
+    }
+
+    private void record(StompHeaderAccessor accessor, int size) {
+        String encoding = accessor.getFirstNativeHeader(StompPayloadCodec.ENCODING_HEADER) != null ? "cbor" : "json";
+        Object original = accessor.getHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        String destination = template(original instanceof String subscribed ? subscribed : accessor.getDestination());
+        meters.computeIfAbsent(destination + '|' + encoding, key -> new DestinationMeters(destination, encoding))
+                .record(size);
+        String sessionId = accessor.getSessionId();
+        if (sessionId != null) bytesBySession.computeIfAbsent(sessionId, id -> new LongAdder()).add(size);
+    }
+
+    static String template(String destination) {
+        if (destination == null || destination.isEmpty()) return "unknown";
+        // "/user/queue/..." names come from our own sends; anything else outside /topic/ is a resolved
+        // per-session queue and would mint a tag per session.
+        if (destination.startsWith("/user/")) return destination;
+        if (!destination.startsWith("/topic/")) return "other";
+        String[] segments = destination.substring(1).split("/");
+        // "/topic/conversations/<id>/...", "/topic/user/<id>/...", "/topic/video/<id>/..."
+        if (segments.length > 2 && ID_PARENTS.contains(segments[1])) segments[2] = "{id}";
+        return "/" + String.join("/", segments);
+    }
+
+    private final class DestinationMeters {
+        private final Counter frames;
+        private final Counter bytes;
+        private final DistributionSummary frameSize;
+
+        private DestinationMeters(String destination, String encoding) {
+            this.frames = Counter.builder("chat.ws.outbound.frames")
+                    .tag("destination", destination)
+                    .tag("encoding", encoding)
+                    .register(meterRegistry);
+            this.bytes = Counter.builder("chat.ws.outbound.bytes")
+                    .baseUnit("bytes")
+                    .tag("destination", destination)
+                    .tag("encoding", encoding)
+                    .register(meterRegistry);
+            this.frameSize = DistributionSummary.builder("chat.ws.outbound.frame.size")
+                    .baseUnit("bytes")
+                    .tag("destination", destination)
+                    .tag("encoding", encoding)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(16.0)
+                    .maximumExpectedValue((double) MAX_FRAME_BYTES)
+                    .register(meterRegistry);
+        }
+
+        private void record(int size) {
+            frames.increment();
+            bytes.increment(size);
+            frameSize.record(size);
+        }
+    }
+}
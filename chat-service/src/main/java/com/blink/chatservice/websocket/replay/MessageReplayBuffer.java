@@ -0,0 +1,137 @@
+package com.blink.chatservice.websocket.replay;
+
+import com.blink.chatservice.websocket.config.ReplayConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Per-user replay buffer of recent user-destination frames, kept in a Redis stream per user.
+// Sits on the brokerChannel: every convertAndSendToUser ("/user/{userId}/queue/...") is appended to
+// chat:replay:{userId} before the broker delivers it, and the stream entry id is attached to the frame
+// as the "seq" native header. A reconnecting client sends the last seq it saw and gets only the gap
+// (see SessionResumeInterceptor). Being in Redis, the buffer survives pod restarts and is shared by
+// every replica, so a client may resume on a different node than the one it dropped from.
+// Only the user destinations in app.websocket.replay.destinations (message frames) are recorded; topic
+// frames, presence diffs and other notices are recovered over REST. XADD and EXPIRE go out pipelined,
+// one round trip per recorded frame.
+@Slf4j
+@Component
+public class MessageReplayBuffer implements ChannelInterceptor {
+
+    public static final String SEQ_HEADER = "seq";
+
+    static final String KEY_PREFIX = "chat:replay:";
+    private static final String USER_PREFIX = "/user/";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReplayConfig config;
+    private final Counter recorded;
+    private final Counter failed;
+
+    public MessageReplayBuffer(StringRedisTemplate redisTemplate, ReplayConfig config, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.recorded = Counter.builder("chat.ws.replay.recorded").register(meterRegistry);
+        this.failed = Counter.builder("chat.ws.replay.failed").register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!config.isEnabled()) return message;
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) return message;
+        // Frames replayed from another node were recorded (and numbered) where they were sent.
+        if (accessor.getFirstNativeHeader(SEQ_HEADER) != null) return message;
+        if (!(message.getPayload() instanceof byte[] payload)) return message;
+
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(USER_PREFIX)) return message;
+        int slash = destination.indexOf('/', USER_PREFIX.length());
+        if (slash < 0) return message;
+        String userId = destination.substring(USER_PREFIX.length(), slash);
+        String userDestination = destination.substring(slash);
+        if (!config.getDestinations().contains(userDestination)) return message;
+
+        RecordId seq;
+        try {
+            seq = append(userId, userDestination, accessor.getContentType(), payload);
+        } catch (Exception e) {
+            // Delivery goes ahead without a seq; the client just cannot resume past this frame.
+            failed.increment();
+            log.warn("Failed to record replay frame for {}: {}", destination, e.getMessage());
+            return message;
+        }
+        if (seq == null) return message;
+        recorded.increment();
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+        headers.setNativeHeader(SEQ_HEADER, seq.getValue());
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    private RecordId append(String userId, String destination, MimeType contentType, byte[] payload) {
+        String key = KEY_PREFIX + userId;
+        Map<String, String> fields = contentType != null
+                ? Map.of("d", destination, "c", contentType.toString(), "p", new String(payload, StandardCharsets.UTF_8))
+                : Map.of("d", destination, "p", new String(payload, StandardCharsets.UTF_8));
+        XAddOptions trim = XAddOptions.maxlen(config.getMaxFrames()).approximateTrimming(true);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.xAdd(StreamRecords.newRecord().in(key).ofStrings(fields), trim);
+            redis.expire(key, config.getTtl().toSeconds());
+            return null;
+        });
+        return !results.isEmpty() && results.get(0) instanceof RecordId id ? id : null;
+    }
+
+    // Frames for userDestination ("/queue/messages") recorded after lastSeq, oldest first.
+    // The range starts at lastSeq itself: finding it proves nothing between it and the first
+    // returned frame was trimmed or expired, which is what makes the window complete.
+    public ReplayWindow since(String userId, String lastSeq, String userDestination) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().range(
+                KEY_PREFIX + userId,
+                Range.rightUnbounded(Range.Bound.inclusive(lastSeq)),
+                Limit.limit().count(config.getMaxFrames() + 1));
+        if (records == null || records.isEmpty()) return new ReplayWindow(List.of(), false);
+
+        boolean complete = lastSeq.equals(records.get(0).getId().getValue());
+        List<Frame> frames = new ArrayList<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            if (record.getId().getValue().equals(lastSeq)) continue;
+            Map<Object, Object> fields = record.getValue();
+            if (!userDestination.equals(fields.get("d"))) continue;
+            Object contentType = fields.get("c");
+            frames.add(new Frame(record.getId().getValue(),
+                    contentType != null ? MimeType.valueOf(contentType.toString()) : null,
+                    String.valueOf(fields.get("p")).getBytes(StandardCharsets.UTF_8)));
+        }
+        return new ReplayWindow(frames, complete);
+    }
+
+    public record Frame(String seq, MimeType contentType, byte[] payload) {}
+
+    public record ReplayWindow(List<Frame> frames, boolean complete) {}
+}
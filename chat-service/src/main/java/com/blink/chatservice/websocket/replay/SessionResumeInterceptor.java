@@ -0,0 +1,196 @@
+package com.blink.chatservice.websocket.replay;
+
+import com.blink.chatservice.websocket.config.ReplayConfig;
+import com.blink.chatservice.websocket.dto.ResumeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Replays missed user-destination frames to a reconnecting session.
+// The client sends "resume: <last seq it saw>" on CONNECT. Every later SUBSCRIBE to a /user/queue/...
+// destination then gets the gap from MessageReplayBuffer, sent straight to that subscription, each
+// frame carrying its original "seq" plus "replayed: true". Live frames may already be flowing on the
+// subscription while the gap is sent, so clients drop any seq they have already seen.
+// Per subscription a ResumeResult goes to /user/queue/resume (held until the client subscribes there);
+// complete=false tells the client the buffer no longer covers its gap and it should re-fetch over REST.
+// Replay runs in afterMessageHandled on the inbound executor, once UserDestinationMessageHandler has
+// registered the resolved subscription with the broker.
+@Slf4j
+@Component
+public class SessionResumeInterceptor implements ExecutorChannelInterceptor {
+
+    public static final String RESUME_HEADER = "resume";
+    static final String REPLAYED_HEADER = "replayed";
+    static final String RESULT_DESTINATION = "/user/queue/resume";
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+
+    private final MessageReplayBuffer replayBuffer;
+    private final MessageChannel clientOutboundChannel;
+    private final ObjectMapper objectMapper;
+    private final ReplayConfig config;
+    private final ConcurrentHashMap<String, ResumeState> resuming = new ConcurrentHashMap<>();
+
+    private final Counter replayed;
+    private final Counter incomplete;
+
+    public SessionResumeInterceptor(MessageReplayBuffer replayBuffer,
+                                    @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                    ObjectMapper objectMapper,
+                                    ReplayConfig config,
+                                    MeterRegistry meterRegistry) {
+        this.replayBuffer = replayBuffer;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.replayed = Counter.builder("chat.ws.replay.replayed")
+                .description("Frames re-sent to resumed sessions")
+                .register(meterRegistry);
+        this.incomplete = Counter.builder("chat.ws.replay.incomplete")
+                .description("Resumed subscriptions whose gap was older than the replay buffer")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null || accessor.getCommand() == null) return message;
+
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                String lastSeq = accessor.getFirstNativeHeader(RESUME_HEADER);
+                if (config.isEnabled() && lastSeq != null && !lastSeq.isBlank()) {
+                    resuming.put(sessionId, new ResumeState(lastSeq.trim()));
+                }
+            }
+            case DISCONNECT -> resuming.remove(sessionId);
+            default -> { }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        // Called once per channel subscriber; only the user destination handler's pass replays.
+        if (!(handler instanceof UserDestinationMessageHandler) || ex != null) return;
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (accessor.getCommand() != StompCommand.SUBSCRIBE) return;
+        String sessionId = accessor.getSessionId();
+        ResumeState state = sessionId != null ? resuming.get(sessionId) : null;
+        String destination = accessor.getDestination();
+        Principal user = accessor.getUser();
+        if (state == null || destination == null || user == null) return;
+
+        if (RESULT_DESTINATION.equals(destination)) {
+            List<ResumeResult> pending = state.resultSubscription(accessor.getSubscriptionId());
+            pending.forEach(result -> sendResult(sessionId, state, result));
+            return;
+        }
+        if (!destination.startsWith(USER_QUEUE_PREFIX) || !state.markReplayed(destination)) return;
+
+        ResumeResult result = replay(sessionId, user.getName(), accessor.getSubscriptionId(), destination, state.lastSeq());
+        if (!result.complete()) incomplete.increment();
+        if (state.queueResult(result)) sendResult(sessionId, state, result);
+    }
+
+    private ResumeResult replay(String sessionId, String userId, String subscriptionId, String destination, String lastSeq) {
+        MessageReplayBuffer.ReplayWindow window;
+        try {
+            window = replayBuffer.since(userId, lastSeq, destination.substring("/user".length()));
+        } catch (Exception e) {
+            log.warn("Replay lookup failed for session {} on {}: {}", sessionId, destination, e.getMessage());
+            return new ResumeResult(destination, 0, false);
+        }
+        for (MessageReplayBuffer.Frame frame : window.frames()) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setSubscriptionId(subscriptionId);
+            headers.setDestination(destination);
+            if (frame.contentType() != null) headers.setContentType(frame.contentType());
+            headers.setNativeHeader(MessageReplayBuffer.SEQ_HEADER, frame.seq());
+            headers.setNativeHeader(REPLAYED_HEADER, "true");
+            headers.setLeaveMutable(true);
+            clientOutboundChannel.send(MessageBuilder.createMessage(frame.payload(), headers.getMessageHeaders()));
+        }
+        replayed.increment(window.frames().size());
+        log.debug("Resumed session {} on {} from {}: {} frames, complete={}",
+                sessionId, destination, lastSeq, window.frames().size(), window.complete());
+        return new ResumeResult(destination, window.frames().size(), window.complete());
+    }
+
+    private void sendResult(String sessionId, ResumeState state, ResumeResult result) {
+        try {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setSubscriptionId(state.resultSubscriptionId());
+            headers.setDestination(RESULT_DESTINATION);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            headers.setLeaveMutable(true);
+            clientOutboundChannel.send(MessageBuilder.createMessage(objectMapper.writeValueAsBytes(result), headers.getMessageHeaders()));
+        } catch (Exception e) {
+            log.warn("Failed to send resume result to session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    // Per-session resume bookkeeping; guarded by its own monitor since SUBSCRIBEs of one session
+    // may be handled on different inbound threads.
+    private static final class ResumeState {
+        private final String lastSeq;
+        private final Set<String> replayedDestinations = new HashSet<>();
+        private final List<ResumeResult> pendingResults = new ArrayList<>();
+        private String resultSubscriptionId;
+
+        private ResumeState(String lastSeq) {
+            this.lastSeq = lastSeq;
+        }
+
+        String lastSeq() {
+            return lastSeq;
+        }
+
+        synchronized boolean markReplayed(String destination) {
+            return replayedDestinations.add(destination);
+        }
+
+        synchronized String resultSubscriptionId() {
+            return resultSubscriptionId;
+        }
+
+        // True if the client is already subscribed to the result destination; otherwise held back.
+        synchronized boolean queueResult(ResumeResult result) {
+            if (resultSubscriptionId != null) return true;
+            pendingResults.add(result);
+            return false;
+        }
+
+        synchronized List<ResumeResult> resultSubscription(String subscriptionId) {
+            if (resultSubscriptionId != null) return List.of();
+            resultSubscriptionId = subscriptionId;
+            List<ResumeResult> pending = List.copyOf(pendingResults);
+            pendingResults.clear();
+            return pending;
+        }
+    }
+}
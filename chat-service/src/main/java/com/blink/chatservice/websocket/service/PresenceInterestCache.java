@@ -0,0 +1,112 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// userId -> the users who should hear about that user's presence: everyone they share a conversation with.
+// Loaded with one indexed query per user (participants_type_idx) that only projects participants, and
+// skips groups larger than max-group-size via "participants.N does not exist", so a 5k-member group never
+// makes its members each other's presence audience. Membership changes arrive on the same Redis channel
+// ConversationMembershipCache uses: the conversation's current members and every user whose entry was
+// built from that conversation (which covers whoever just left) are dropped and reload on next use.
+// The TTL only bounds staleness if an invalidation is lost.
+@Slf4j
+@Component
+public class PresenceInterestCache implements MessageListener {
+
+    private static final long ENTRY_TTL_MS = 5 * 60 * 1000L; // 5 minutes
+
+    // Hard cap so a burst of one-off users cannot grow the map unbounded.
+    private static final int MAX_ENTRIES = 50_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final int maxGroupSize;
+
+    private final ConcurrentHashMap<String, Interest> interests = new ConcurrentHashMap<>();
+
+    public PresenceInterestCache(MongoTemplate mongoTemplate,
+                                 RedisMessageListenerContainer redisMessageListenerContainer,
+                                 @Value("${app.presence.max-group-size:200}") int maxGroupSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(ConversationMembershipCache.INVALIDATION_CHANNEL));
+    }
+
+    // Users whose clients should receive this user's presence changes; never includes the user.
+    public Set<String> peersOf(String userId) {
+        Interest cached = interests.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAtMs() < ENTRY_TTL_MS) return cached.peers();
+
+        Query query = Query.query(Criteria.where("participants").is(userId)
+                .and("participants." + maxGroupSize).exists(false));
+        query.fields().include("participants");
+        Set<String> peers = new HashSet<>();
+        Set<String> conversationIds = new HashSet<>();
+        for (Conversation conv : mongoTemplate.find(query, Conversation.class)) {
+            conversationIds.add(conv.getId());
+            if (conv.getParticipants() != null) peers.addAll(conv.getParticipants());
+        }
+        peers.remove(userId);
+
+        Interest loaded = new Interest(Set.copyOf(peers), Set.copyOf(conversationIds), System.currentTimeMillis());
+        if (interests.size() >= MAX_ENTRIES) evictExpired();
+        interests.put(userId, loaded);
+        return loaded.peers();
+    }
+
+    // A conversation was created or changed membership, possibly on another node.
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateConversation(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    void invalidateConversation(String conversationId) {
+        interests.values().removeIf(i -> i.conversationIds().contains(conversationId));
+        try {
+            Query query = Query.query(Criteria.where("_id").is(conversationId));
+            query.fields().include("participants");
+            Conversation conv = mongoTemplate.findOne(query, Conversation.class);
+            if (conv != null && conv.getParticipants() != null) conv.getParticipants().forEach(interests::remove);
+        } catch (Exception e) {
+            // Entries that did not contain the conversation fall back to the TTL.
+            log.warn("Failed to load members of {} for presence invalidation: {}", conversationId, e.getMessage());
+        }
+    }
+
+    // Periodic sweep of expired entries. Runs every 5 minutes.
+    @Scheduled(fixedRate = 300_000)
+    public void evictExpired() {
+        if (interests.isEmpty()) return;
+        long cutoff = System.currentTimeMillis() - ENTRY_TTL_MS;
+        interests.values().removeIf(i -> i.loadedAtMs() < cutoff);
+        if (interests.size() >= MAX_ENTRIES) {
+            log.warn("Presence interest cache still at capacity ({}) after sweep, clearing", MAX_ENTRIES);
+            interests.clear();
+        }
+    }
+
+    private record Interest(Set<String> peers, Set<String> conversationIds, long loadedAtMs) {}
+}
@@ -0,0 +1,327 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.user.entity.User;
+import com.blink.chatservice.websocket.dto.PresenceDiff;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Presence kept in Redis instead of the users collection:
+//   presence:sessions:{userId}  ZSET sessionId -> expiry (ms); the key itself expires too
+//   presence:online             ZSET userId -> latest session expiry (ms)
+// A user is online while any of their sessions is unexpired, so closing one tab of several no longer
+// flips them offline. Sessions stay alive through inbound STOMP traffic (client heartbeats included):
+// touched sessions are refreshed in one pipelined batch per refresh interval. When a node dies its
+// sessions simply stop being refreshed, and whichever node next sweeps presence:online reaps them.
+// Only online/offline transitions are published, and lastSeen reaches Mongo in periodic bulk writes.
+// Transitions are not broadcast globally: they collect for one diff interval, then each online
+// conversation peer (PresenceInterestCache) gets one PresenceDiff on /user/queue/presence covering
+// every peer that changed, so presence traffic follows the contact graph rather than users squared.
+@Slf4j
+@Service
+public class PresenceService {
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    static final String SESSIONS_PREFIX = "presence:sessions:";
+    static final String ONLINE_KEY = "presence:online";
+    private static final int SWEEP_BATCH = 500;
+
+    // KEYS: sessions, online. ARGV: sessionId, expiry, now, keyTtlSeconds, userId.
+    // Returns 1 if this session brought the user online.
+    private static final String CONNECT_SCRIPT =
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[3])\n" +
+            "local before = redis.call('ZCARD', KEYS[1])\n" +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4])\n" +
+            "redis.call('ZADD', KEYS[2], ARGV[2], ARGV[5])\n" +
+            "if before == 0 then return 1 end\n" +
+            "return 0\n";
+
+    // KEYS: sessions, online. ARGV: sessionId (may be empty when reaping), now, userId.
+    // Drops the session and expired siblings; returns 1 if the user has gone offline.
+    private static final String RELEASE_SCRIPT =
+            "if ARGV[1] ~= '' then redis.call('ZREM', KEYS[1], ARGV[1]) end\n" +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[2])\n" +
+            "local live = redis.call('ZRANGE', KEYS[1], -1, -1, 'WITHSCORES')\n" +
+            "if #live > 0 then\n" +
+            "    redis.call('ZADD', KEYS[2], live[2], ARGV[3])\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "return redis.call('ZREM', KEYS[2], ARGV[3])\n";
+
+    private final StringRedisTemplate redisTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceInterestCache interestCache;
+    private final long ttlMs;
+
+    private final DefaultRedisScript<Long> connectScript = new DefaultRedisScript<>(CONNECT_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    // sessionId -> userId for sessions on this node, and the subset with traffic since the last refresh.
+    private final ConcurrentHashMap<String, String> localSessions = new ConcurrentHashMap<>();
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    // userId -> last seen, waiting for the next bulk write.
+    private final ConcurrentHashMap<String, LocalDateTime> pendingLastSeen = new ConcurrentHashMap<>();
+    // userId -> latest online state, waiting for the next diff.
+    private final ConcurrentHashMap<String, Boolean> pendingChanges = new ConcurrentHashMap<>();
+
+    public PresenceService(StringRedisTemplate redisTemplate,
+                           MongoTemplate mongoTemplate,
+                           SimpMessagingTemplate messagingTemplate,
+                           PresenceInterestCache interestCache,
+                           @Value("${app.presence.ttl-ms:60000}") long ttlMs) {
+        this.redisTemplate = redisTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.interestCache = interestCache;
+        this.ttlMs = ttlMs;
+    }
+
+    public void sessionConnected(String userId, String sessionId) {
+        localSessions.put(sessionId, userId);
+        long now = System.currentTimeMillis();
+        try {
+            Long cameOnline = redisTemplate.execute(connectScript, List.of(sessionsKey(userId), ONLINE_KEY),
+                    sessionId, Long.toString(now + ttlMs), Long.toString(now), Long.toString(keyTtlSeconds()), userId);
+            if (cameOnline != null && cameOnline == 1L) pendingChanges.put(userId, true);
+        } catch (Exception e) {
+            log.warn("Failed to record presence on connect for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public void sessionDisconnected(String userId, String sessionId) {
+        localSessions.remove(sessionId);
+        touched.remove(sessionId);
+        release(userId, sessionId, System.currentTimeMillis());
+    }
+
+    // Any inbound frame, heartbeats included, proves the session is alive; the Redis write is batched.
+    public void touch(String sessionId) {
+        if (localSessions.containsKey(sessionId)) touched.add(sessionId);
+    }
+
+    public boolean isOnline(String userId) {
+        if (userId == null) return false;
+        try {
+            Double expiry = redisTemplate.opsForZSet().score(ONLINE_KEY, userId);
+            return expiry != null && expiry > System.currentTimeMillis();
+        } catch (Exception e) {
+            log.debug("Presence lookup failed for {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    public List<String> getOnlineUserIds() {
+        try {
+            Set<String> ids = redisTemplate.opsForZSet()
+                    .rangeByScore(ONLINE_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+            return ids != null ? new ArrayList<>(ids) : List.of();
+        } catch (Exception e) {
+            log.warn("Failed to list online users: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    // The user's conversation peers who are online right now; the client's starting point before diffs.
+    public Set<String> onlinePeersOf(String userId) {
+        try {
+            return onlineAmong(interestCache.peersOf(userId));
+        } catch (Exception e) {
+            log.warn("Failed to resolve online peers of {}: {}", userId, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    // Which of the given users are online, in one round trip.
+    public Set<String> onlineAmong(Collection<String> userIds) {
+        if (userIds.isEmpty()) return Set.of();
+        List<String> ids = List.copyOf(userIds);
+        try {
+            List<Object> expiries = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                ids.forEach(userId -> conn.zScore(ONLINE_KEY, userId));
+                return null;
+            });
+            long now = System.currentTimeMillis();
+            Set<String> online = new LinkedHashSet<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (expiries.get(i) instanceof Double expiry && expiry > now) online.add(ids.get(i));
+            }
+            return online;
+        } catch (Exception e) {
+            log.debug("Presence lookup failed for {} users: {}", ids.size(), e.getMessage());
+            return Set.of();
+        }
+    }
+
+    // Pushes the expiry of every session that showed traffic since the last refresh, pipelined.
+    @Scheduled(fixedDelayString = "${app.presence.refresh-ms:20000}")
+    public void refresh() {
+        if (touched.isEmpty()) return;
+        Map<String, String> batch = new HashMap<>();
+        for (String sessionId : List.copyOf(touched)) {
+            touched.remove(sessionId);
+            String userId = localSessions.get(sessionId);
+            if (userId != null) batch.put(sessionId, userId);
+        }
+        if (batch.isEmpty()) return;
+
+        double expiry = System.currentTimeMillis() + ttlMs;
+        long keyTtl = keyTtlSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                batch.forEach((sessionId, userId) -> {
+                    conn.zAdd(sessionsKey(userId), expiry, sessionId);
+                    conn.expire(sessionsKey(userId), keyTtl);
+                    conn.zAdd(ONLINE_KEY, expiry, userId);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            // Retry next tick; a TTL is several refresh intervals, so one miss does not flip anyone offline.
+            touched.addAll(batch.keySet());
+            log.warn("Failed to refresh presence for {} sessions: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // Reaps users whose sessions all expired without a disconnect (crashed node, lost event).
+    // Every node sweeps; ZREM in the release script decides which one announces the user offline.
+    @Scheduled(fixedDelayString = "${app.presence.sweep-ms:30000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        try {
+            Set<String> expired = redisTemplate.opsForZSet().rangeByScore(ONLINE_KEY, Double.NEGATIVE_INFINITY, now, 0, SWEEP_BATCH);
+            if (expired == null) return;
+            expired.forEach(userId -> release(userId, "", now));
+        } catch (Exception e) {
+            log.warn("Presence sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void release(String userId, String sessionId, long now) {
+        try {
+            Long wentOffline = redisTemplate.execute(releaseScript, List.of(sessionsKey(userId), ONLINE_KEY),
+                    sessionId, Long.toString(now), userId);
+            if (wentOffline != null && wentOffline == 1L) {
+                pendingLastSeen.put(userId, LocalDateTime.ofInstant(Instant.ofEpochMilli(now), UTC));
+                pendingChanges.put(userId, false);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release presence for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // lastSeen is informational, so it is written lazily: one unordered bulk update per interval.
+    @Scheduled(fixedDelayString = "${app.presence.last-seen-flush-ms:30000}")
+    public void flushLastSeen() {
+        if (pendingLastSeen.isEmpty()) return;
+        Map<String, LocalDateTime> batch = new HashMap<>();
+        for (String userId : new ArrayList<>(pendingLastSeen.keySet())) {
+            LocalDateTime seen = pendingLastSeen.remove(userId);
+            if (seen != null) batch.put(userId, seen);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            batch.forEach((userId, seen) -> ops.updateOne(
+                    Query.query(Criteria.where("_id").is(userId)),
+                    new Update().set("lastSeen", seen)));
+            ops.execute();
+            log.debug("Flushed lastSeen for {} users", batch.size());
+        } catch (Exception e) {
+            // Keep the newest value per user for the next tick.
+            batch.forEach((userId, seen) -> pendingLastSeen.merge(userId, seen, (a, b) -> a.isAfter(b) ? a : b));
+            log.warn("Failed to flush lastSeen for {} users: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLastSeen();
+    }
+
+    // Turns the transitions of one interval into a single diff per interested, online subscriber.
+    @Scheduled(fixedDelayString = "${app.presence.diff-flush-ms:2000}")
+    public void flushDiffs() {
+        if (pendingChanges.isEmpty()) return;
+        Map<String, Boolean> changes = new HashMap<>();
+        for (String userId : new ArrayList<>(pendingChanges.keySet())) {
+            Boolean online = pendingChanges.remove(userId);
+            if (online != null) changes.put(userId, online);
+        }
+        if (changes.isEmpty()) return;
+
+        Map<String, DiffBuilder> diffs = new HashMap<>();
+        changes.forEach((userId, online) -> {
+            Set<String> peers;
+            try {
+                peers = interestCache.peersOf(userId);
+            } catch (Exception e) {
+                log.warn("Failed to resolve presence peers of {}: {}", userId, e.getMessage());
+                return;
+            }
+            peers.forEach(peer -> diffs.computeIfAbsent(peer, k -> new DiffBuilder()).add(userId, online));
+        });
+        if (diffs.isEmpty()) return;
+
+        // Offline subscribers catch up from onlinePeersOf when they next connect.
+        Set<String> subscribers = onlineAmong(diffs.keySet());
+        for (String subscriber : subscribers) {
+            try {
+                messagingTemplate.convertAndSendToUser(subscriber, "/queue/presence", diffs.get(subscriber).build());
+            } catch (Exception e) {
+                log.debug("Failed to send presence diff to {}: {}", subscriber, e.getMessage());
+            }
+        }
+        log.debug("Sent presence diffs for {} changes to {} subscribers", changes.size(), subscribers.size());
+    }
+
+    private static final class DiffBuilder {
+        private final List<String> online = new ArrayList<>();
+        private final List<String> offline = new ArrayList<>();
+
+        void add(String userId, boolean isOnline) {
+            (isOnline ? online : offline).add(userId);
+        }
+
+        PresenceDiff build() {
+            return new PresenceDiff(online, offline);
+        }
+    }
+
+    private long keyTtlSeconds() {
+        return Math.max(1, ttlMs * 2 / 1000);
+    }
+
+    private static String sessionsKey(String userId) {
+        return SESSIONS_PREFIX + userId;
+    }
+}
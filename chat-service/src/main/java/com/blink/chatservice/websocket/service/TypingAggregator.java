@@ -0,0 +1,121 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.websocket.dto.TypingSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Coalesces typing events into one TypingSnapshot frame per conversation per flush interval.
+// Typers live in Redis (chat:typing:{conversationId}, ZSET userId -> expiry ms) so that every replica
+// builds the same snapshot; a node-local view made the indicator flicker between each node's typers.
+// Clients resend "typing" on every keystroke. This node remembers the expiry it last wrote and only
+// goes back to Redis once half the TTL has passed, so keystrokes stay local. Only a user starting or
+// stopping changes the snapshot. Entries nobody refreshes within the TTL expire on their own, which
+// also covers clients that disconnect without sending typing=false.
+@Slf4j
+@Service
+public class TypingAggregator {
+
+    static final String KEY_PREFIX = "chat:typing:";
+    // Only garbage collection for idle conversations; entry expiry is the score. Longer than any entry TTL
+    // so a short-lived typer never cuts the AI assistant's two-minute entry short.
+    private static final Duration KEY_TTL = Duration.ofMinutes(5);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlMs;
+
+    // conversationId -> userId -> expiry (epoch ms) last written to Redis by this node
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> typing = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public TypingAggregator(SimpMessagingTemplate messagingTemplate,
+                            StringRedisTemplate redisTemplate,
+                            @Value("${app.chat.typing.ttl-ms:6000}") long ttlMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.redisTemplate = redisTemplate;
+        this.ttlMs = ttlMs;
+    }
+
+    public void update(String conversationId, String userId, boolean isTyping) {
+        update(conversationId, userId, isTyping, ttlMs);
+    }
+
+    // Long-running typers (the AI assistant) pass a larger TTL and clear it explicitly when done.
+    public void update(String conversationId, String userId, boolean isTyping, long entryTtlMs) {
+        long now = System.currentTimeMillis();
+        if (isTyping) {
+            ConcurrentHashMap<String, Long> users = typing.computeIfAbsent(conversationId, k -> new ConcurrentHashMap<>());
+            Long written = users.get(userId);
+            if (written != null && written - now > entryTtlMs / 2) return;
+
+            long expiry = now + entryTtlMs;
+            users.put(userId, expiry);
+            try {
+                String key = key(conversationId);
+                Boolean added = redisTemplate.opsForZSet().add(key, userId, expiry);
+                redisTemplate.expire(key, KEY_TTL);
+                if (Boolean.TRUE.equals(added)) dirty.add(conversationId);
+            } catch (Exception e) {
+                users.remove(userId, expiry); // so the next keystroke tries again
+                log.warn("Failed to record typing for {} in {}: {}", userId, conversationId, e.getMessage());
+            }
+        } else {
+            Map<String, Long> users = typing.get(conversationId);
+            if (users != null) users.remove(userId);
+            try {
+                Long removed = redisTemplate.opsForZSet().remove(key(conversationId), userId);
+                if (removed != null && removed > 0) dirty.add(conversationId);
+            } catch (Exception e) {
+                log.warn("Failed to clear typing for {} in {}: {}", userId, conversationId, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.typing.flush-ms:500}")
+    public void flush() {
+        flush(System.currentTimeMillis());
+    }
+
+    void flush(long now) {
+        // Expiry is driven by the node that wrote the entry; it reaps everything stale in that conversation.
+        typing.forEach((conversationId, users) -> {
+            if (users.entrySet().removeIf(e -> e.getValue() <= now)) {
+                try {
+                    Long reaped = redisTemplate.opsForZSet().removeRangeByScore(key(conversationId), Double.NEGATIVE_INFINITY, now);
+                    if (reaped != null && reaped > 0) dirty.add(conversationId);
+                } catch (Exception e) {
+                    log.warn("Failed to expire typing entries for {}: {}", conversationId, e.getMessage());
+                }
+            }
+            if (users.isEmpty()) typing.remove(conversationId, users);
+        });
+
+        for (String conversationId : List.copyOf(dirty)) {
+            dirty.remove(conversationId);
+            try {
+                Set<String> typers = redisTemplate.opsForZSet().rangeByScore(key(conversationId), now + 1, Double.POSITIVE_INFINITY);
+                List<String> userIds = typers != null ? new ArrayList<>(typers) : new ArrayList<>();
+                userIds.sort(null);
+                messagingTemplate.convertAndSend("/topic/conversations/" + conversationId + "/typing",
+                        new TypingSnapshot(conversationId, userIds));
+            } catch (Exception e) {
+                log.warn("Failed to send typing snapshot for {}: {}", conversationId, e.getMessage());
+            }
+        }
+    }
+
+    private static String key(String conversationId) {
+        return KEY_PREFIX + conversationId;
+    }
+}
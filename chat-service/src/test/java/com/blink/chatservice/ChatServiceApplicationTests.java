@@ -20,6 +20,7 @@ import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.client.RestTemplate;
 
@@ -46,6 +47,10 @@ class ChatServiceApplicationTests {
 	@MockitoBean
 	private RedisConnectionFactory redisConnectionFactory;
 
+	// The real container subscribes on startup, which needs a live Redis connection.
+	@MockitoBean
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
 	@MockitoBean
 	private ConversationRepository conversationRepository;
 
@@ -0,0 +1,93 @@
+package com.blink.chatservice.chat.cleanup;
+
+import com.blink.chatservice.chat.archive.MessageArchiveService;
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageCleanupJobTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private MessageArchiveService archiveService;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    private MessageCleanupJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new MessageCleanupJob(mongoTemplate, archiveService, membershipCache, 30, 2, 1_000_000, true);
+    }
+
+    @Test
+    void retainConversation_shouldArchiveThenDeleteInChunks() throws Exception {
+        Message a = message(false);
+        Message b = message(true);
+        Message c = message(false);
+        when(mongoTemplate.find(any(Query.class), eq(Message.class)))
+                .thenReturn(List.of(a, b))
+                .thenReturn(List.of(c));
+
+        long processed = job.retainConversation("conv-1", new ObjectId());
+
+        assertEquals(3, processed);
+        // Soft-deleted messages are dropped, not archived.
+        verify(archiveService).writeSegment("conv-1", List.of(a));
+        verify(archiveService).writeSegment("conv-1", List.of(c));
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(Message.class));
+    }
+
+    @Test
+    void retainConversation_shouldFlagConversationBeforeFirstDelete() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(List.of(message(false)));
+        when(mongoTemplate.findDistinct(any(Query.class), eq("_id"), eq(Conversation.class), eq(String.class))).thenReturn(List.of("conv-1"));
+
+        job.retainConversation("conv-1", new ObjectId());
+
+        InOrder order = inOrder(archiveService, mongoTemplate, membershipCache);
+        order.verify(archiveService).writeSegment(eq("conv-1"), anyList());
+        order.verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(Conversation.class));
+        order.verify(membershipCache).invalidate("conv-1");
+        order.verify(mongoTemplate).remove(any(Query.class), eq(Message.class));
+    }
+
+    @Test
+    void retainConversation_whenArchiveFails_shouldNotDelete() {
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(List.of(message(false)));
+        doThrow(new RuntimeException("gridfs down")).when(archiveService).writeSegment(eq("conv-1"), anyList());
+
+        assertThrows(RuntimeException.class, () -> job.retainConversation("conv-1", new ObjectId()));
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Message.class));
+    }
+
+    private static Message message(boolean deleted) {
+        Message m = new Message();
+        m.setId(new ObjectId().toHexString());
+        m.setConversationId("conv-1");
+        m.setDeleted(deleted);
+        return m;
+    }
+}
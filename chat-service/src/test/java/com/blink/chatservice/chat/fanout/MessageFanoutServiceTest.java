@@ -0,0 +1,107 @@
+package com.blink.chatservice.chat.fanout;
+
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.websocket.service.PresenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageFanoutServiceTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private PresenceService presenceService;
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageFanoutService fanoutService;
+
+    @BeforeEach
+    void setUp() {
+        fanoutService = new MessageFanoutService(messagingTemplate, presenceService,
+                new FanoutLanes(List.<Executor>of(queued::add)), meterRegistry, 200, 8, 100);
+    }
+
+    @Test
+    void publish_largeGroup_shouldSendOneTopicFrameAndSenderEchoOnly() {
+        Set<String> members = IntStream.range(0, 5000).mapToObj(i -> "u" + i).collect(Collectors.toSet());
+
+        fanoutService.publish(new ConversationMembership(ConversationType.GROUP, members, 0L), "u0", "/topic/conversations/g", "/queue/messages", "payload");
+
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/conversations/g", (Object) "payload");
+        verify(messagingTemplate, times(1)).convertAndSendToUser(anyString(), anyString(), any());
+        verifyNoInteractions(presenceService);
+        assertEquals(1, meterRegistry.get("chat.fanout.latency").tag("mode", "topic").timer().count());
+    }
+
+    @Test
+    void publish_smallGroup_shouldBatchOnlineMembersOnExecutor() {
+        Set<String> members = new HashSet<>(IntStream.range(0, 150).mapToObj(i -> "u" + i).toList());
+        when(presenceService.onlineAmong(members)).thenReturn(members.stream().filter(u -> !u.equals("u1")).collect(Collectors.toSet()));
+
+        fanoutService.publish(new ConversationMembership(ConversationType.GROUP, members, 0L), "u0", "/topic/conversations/g", "/queue/messages", "payload");
+
+        // 148 online recipients -> two batches, nothing sent to them on the calling thread.
+        assertEquals(2, queued.size());
+        verify(messagingTemplate, times(1)).convertAndSendToUser(anyString(), eq("/queue/messages"), any());
+        queued.forEach(Runnable::run);
+        verify(messagingTemplate, times(149)).convertAndSendToUser(anyString(), eq("/queue/messages"), any());
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("u1"), anyString(), any());
+    }
+
+    @Test
+    void sendToUsers_shouldKeepEachRecipientOnOneLaneInPublishOrder() {
+        List<Runnable> laneA = new ArrayList<>();
+        List<Runnable> laneB = new ArrayList<>();
+        fanoutService = new MessageFanoutService(messagingTemplate, presenceService,
+                new FanoutLanes(List.<Executor>of(laneA::add, laneB::add)), meterRegistry, 200, 8, 100);
+        List<String> users = IntStream.range(0, 20).mapToObj(i -> "u" + i).toList();
+
+        fanoutService.sendToUsers(users, "/queue/messages", "first");
+        fanoutService.sendToUsers(users, "/queue/messages", "second");
+
+        // Lanes drain independently; draining B fully before A must not reorder anyone's frames.
+        laneB.forEach(Runnable::run);
+        laneA.forEach(Runnable::run);
+        for (String user : users) {
+            InOrder order = inOrder(messagingTemplate);
+            order.verify(messagingTemplate).convertAndSendToUser(user, "/queue/messages", "first");
+            order.verify(messagingTemplate).convertAndSendToUser(user, "/queue/messages", "second");
+        }
+    }
+
+    @Test
+    void sendToUsers_whenLaneIsFull_shouldShedWithoutBlockingTheCaller() {
+        fanoutService = new MessageFanoutService(messagingTemplate, presenceService,
+                new FanoutLanes(List.<Executor>of(task -> { throw new RejectedExecutionException("full"); })), meterRegistry, 200, 8, 100);
+        List<String> users = IntStream.range(0, 20).mapToObj(i -> "u" + i).toList();
+
+        fanoutService.sendToUsers(users, "/queue/messages", "payload");
+
+        assertEquals(20.0, meterRegistry.get("chat.fanout.shed").counter().count());
+        verifyNoInteractions(messagingTemplate);
+    }
+}
@@ -0,0 +1,89 @@
+package com.blink.chatservice.chat.membership;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationMembershipCacheTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @InjectMocks
+    private ConversationMembershipCache cache;
+
+    @Test
+    void get_shouldLoadOnceAndServeFromCache() {
+        when(conversationRepository.findById("conv-1")).thenReturn(Optional.of(conversation("user-1", "user-2")));
+
+        cache.get("conv-1");
+        ConversationMembership second = cache.get("conv-1");
+
+        assertTrue(second.contains("user-2"));
+        verify(conversationRepository, times(1)).findById("conv-1");
+    }
+
+    @Test
+    void get_whenInvalidatedDuringLoad_shouldNotCacheTheStaleMembership() {
+        when(conversationRepository.findById("conv-1"))
+                .thenAnswer(inv -> {
+                    // A membership change lands on another node after this read but before the put.
+                    cache.onMessage(invalidation("conv-1"), null);
+                    return Optional.of(conversation("user-1", "user-2"));
+                })
+                .thenReturn(Optional.of(conversation("user-1")));
+
+        ConversationMembership stale = cache.get("conv-1");
+        assertTrue(stale.contains("user-2"));
+        assertEquals(0, cache.size());
+
+        ConversationMembership fresh = cache.get("conv-1");
+        assertFalse(fresh.contains("user-2"));
+        assertEquals(1, cache.size());
+        verify(conversationRepository, times(2)).findById("conv-1");
+    }
+
+    @Test
+    void invalidate_shouldDropLocalEntryAndPublish() {
+        when(conversationRepository.findById("conv-1")).thenReturn(Optional.of(conversation("user-1", "user-2")));
+        cache.get("conv-1");
+
+        cache.invalidate("conv-1");
+
+        assertEquals(0, cache.size());
+        verify(redisTemplate).convertAndSend(ConversationMembershipCache.INVALIDATION_CHANNEL, "conv-1");
+    }
+
+    private static Conversation conversation(String... participants) {
+        Conversation conversation = new Conversation();
+        conversation.setId("conv-1");
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(Set.of(participants));
+        return conversation;
+    }
+
+    private static DefaultMessage invalidation(String conversationId) {
+        return new DefaultMessage(ConversationMembershipCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                conversationId.getBytes(StandardCharsets.UTF_8));
+    }
+}
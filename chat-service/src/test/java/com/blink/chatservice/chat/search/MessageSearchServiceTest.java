@@ -0,0 +1,66 @@
+package com.blink.chatservice.chat.search;
+
+import com.blink.chatservice.ai.model.AiAnalysisModels.SearchCriteria;
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import com.blink.chatservice.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageSearchServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private MessageSearchService searchService;
+
+    @Test
+    void search_withoutVisibleConversations_shouldNotQueryMessages() {
+        when(conversationRepository.findIdAndTypeByParticipant("user-1")).thenReturn(List.of());
+
+        var result = searchService.search("user-1", new SearchCriteria(List.of("invoice"), null, null, null, null), 0, 20);
+
+        assertTrue(result.content().isEmpty());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Message.class));
+    }
+
+    @Test
+    void search_withKeywords_shouldScopeToCallerConversationsAndRankByScore() {
+        Conversation group = new Conversation();
+        group.setId("conv-1");
+        group.setType(ConversationType.GROUP);
+        when(conversationRepository.findIdAndTypeByParticipant("user-1")).thenReturn(List.of(group));
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(List.of(new Message(), new Message()));
+
+        var result = searchService.search("user-1", new SearchCriteria(List.of("invoice"), null, null, null, "group"), 0, 1);
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Message.class));
+        String query = captor.getValue().getQueryObject().toJson();
+        assertTrue(query.contains("$text"));
+        assertTrue(query.contains("conv-1"));
+        assertEquals(1, result.content().size());
+        assertTrue(result.hasNext());
+    }
+}
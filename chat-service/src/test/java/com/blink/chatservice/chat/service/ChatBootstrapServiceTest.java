@@ -0,0 +1,128 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.dto.ChatBootstrapResponse;
+import com.blink.chatservice.chat.dto.CursorResponse;
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.mcp.tool.helper.UserLookupHelper;
+import com.blink.chatservice.user.entity.User;
+import com.blink.chatservice.user.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatBootstrapServiceTest {
+
+    @Mock
+    private InboxService inboxService;
+    @Mock
+    private ChatService chatService;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private UserLookupHelper userLookupHelper;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private ConversationRevisionService revisionService;
+
+    private ChatBootstrapService bootstrapService;
+
+    @BeforeEach
+    void setUp() {
+        bootstrapService = new ChatBootstrapService(inboxService, chatService, membershipCache, userLookupHelper,
+                unreadCounterService, userService, revisionService);
+    }
+
+    @Test
+    void build_shouldResolveSendersAndDirectPeersInOneBatch() {
+        InboxEntry direct = entry("conv-1", ConversationType.DIRECT);
+        InboxEntry group = entry("conv-2", ConversationType.GROUP);
+        when(inboxService.list("me", null, 20)).thenReturn(new CursorResponse<>(List.of(direct, group), null, false, 2));
+        when(chatService.getMessagesBefore("conv-1", null, 20)).thenReturn(new SliceImpl<>(List.of()));
+        when(chatService.getMessagesBefore("conv-2", null, 20)).thenReturn(new SliceImpl<>(List.of(message("carol"))));
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of("me", "bob"), 0L));
+        when(userLookupHelper.getUserInfoBatch(argThat(ids -> ids.size() == 2 && ids.containsAll(Set.of("bob", "carol")))))
+                .thenReturn(Map.of("bob", Map.of("id", "bob", "email", "bob@example.com", "displayName", "Bob")));
+
+        ChatBootstrapResponse response = bootstrapService.build("me", 20, 20);
+
+        assertEquals(2, response.conversations().size());
+        // Contact details are not part of the summary.
+        assertEquals(Map.of("id", "bob", "displayName", "Bob"), response.users().get("bob"));
+        verify(userLookupHelper, times(1)).getUserInfoBatch(anyCollection());
+    }
+
+    @Test
+    void etagFor_shouldNotBuildSnapshotAndShouldTrackUnreadChanges() {
+        User me = new User();
+        me.setUsername("me");
+        when(userService.getProfile("me")).thenReturn(me);
+        when(inboxService.version("me")).thenReturn("2:2026-01-01T00:00");
+        when(inboxService.recentConversationIds("me", 20)).thenReturn(List.of("conv-1", "conv-2"));
+        when(revisionService.revisions(List.of("conv-1", "conv-2"))).thenReturn("0,0");
+        when(unreadCounterService.getUnreadCounts("me"))
+                .thenReturn(Map.of("conv-1", 1L, "conv-2", 3L))
+                .thenReturn(Map.of("conv-2", 3L, "conv-1", 1L))
+                .thenReturn(Map.of("conv-2", 3L));
+
+        String first = bootstrapService.etagFor("me", 20, 20);
+        String reordered = bootstrapService.etagFor("me", 20, 20);
+        String afterRead = bootstrapService.etagFor("me", 20, 20);
+
+        assertEquals(first, reordered);
+        assertNotEquals(first, afterRead);
+        verifyNoInteractions(chatService, userLookupHelper);
+        verify(inboxService, never()).list(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void etagFor_shouldChangeWhenACoveredConversationIsEdited() {
+        User me = new User();
+        me.setUsername("me");
+        when(userService.getProfile("me")).thenReturn(me);
+        when(inboxService.version("me")).thenReturn("2:2026-01-01T00:00");
+        when(inboxService.recentConversationIds("me", 20)).thenReturn(List.of("conv-1", "conv-2"));
+        when(unreadCounterService.getUnreadCounts("me")).thenReturn(Map.of());
+        // An edit in conv-2 does not move the inbox, only its revision.
+        when(revisionService.revisions(List.of("conv-1", "conv-2"))).thenReturn("0,4").thenReturn("0,5");
+
+        String before = bootstrapService.etagFor("me", 20, 20);
+        String after = bootstrapService.etagFor("me", 20, 20);
+
+        assertNotEquals(before, after);
+    }
+
+    private static InboxEntry entry(String conversationId, ConversationType type) {
+        InboxEntry e = new InboxEntry();
+        e.setId("me:" + conversationId);
+        e.setConversationId(conversationId);
+        e.setType(type);
+        return e;
+    }
+
+    private static Message message(String senderId) {
+        Message m = new Message();
+        m.setId("65f000000000000000000001");
+        m.setSenderId(senderId);
+        return m;
+    }
+}
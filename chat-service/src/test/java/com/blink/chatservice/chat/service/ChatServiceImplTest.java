@@ -1,22 +1,33 @@
 package com.blink.chatservice.chat.service;
 
+import com.blink.chatservice.chat.archive.MessageArchiveService;
 import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.fanout.MessageFanoutService;
 import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
 import com.blink.chatservice.chat.model.ConversationType;
 import com.blink.chatservice.chat.repository.ConversationRepository;
 import com.blink.chatservice.chat.repository.MessageRepository;
 import com.blink.chatservice.user.repository.UserRepository;
 import com.blink.chatservice.user.service.UserService;
+import com.blink.chatservice.websocket.dto.MessageDelta;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -40,6 +51,22 @@ class ChatServiceImplTest {
     private UserService userService;
     @Mock
     private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private ConversationUpdateCoalescer conversationUpdateCoalescer;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private InboxService inboxService;
+    @Mock
+    private MessageArchiveService archiveService;
+    @Mock
+    private MessageDedupeCache dedupeCache;
+    @Mock
+    private MessageFanoutService fanoutService;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ConversationRevisionService revisionService;
 
     @InjectMocks
     private ChatServiceImpl chatService;
@@ -70,7 +97,7 @@ class ChatServiceImplTest {
 
     @Test
     void sendMessage_shouldSaveMessageAndBroadcast() {
-        when(conversationRepository.findById("conv-1")).thenReturn(Optional.of(conversation));
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
         Message message = new Message();
         message.setId("msg-1");
         message.setCreatedAt(LocalDateTime.now());
@@ -82,7 +109,11 @@ class ChatServiceImplTest {
         assertNotNull(result);
         assertEquals("Hello", result.getBody());
         verify(messageRepository).save(any(Message.class));
-        verify(messagingTemplate, atLeastOnce()).convertAndSend(anyString(), any(Object.class));
+        verify(conversationUpdateCoalescer).recordMessage(eq("conv-1"), eq("Hello"), any(LocalDateTime.class));
+        verify(unreadCounterService).recordMessages(eq("conv-1"), any(ConversationMembership.class), eq(userId), eq(1));
+        verify(conversationRepository, never()).findById(anyString());
+        verify(conversationRepository, never()).save(any());
+        verify(fanoutService).publish(any(ConversationMembership.class), any(), anyString(), eq("/queue/messages"), any());
     }
 
     @Test
@@ -101,4 +132,173 @@ class ChatServiceImplTest {
 
         assertThrows(IllegalArgumentException.class, () -> chatService.getConversation("invalid"));
     }
+
+    @Test
+    void sendMessage_fromNonParticipant_shouldBeRejectedWithoutSaving() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(otherUserId), System.currentTimeMillis()));
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.sendMessage("conv-1", userId, "Hello"));
+        verify(messageRepository, never()).save(any());
+    }
+
+    @Test
+    void sendMessages_shouldInsertOnceAndEmitSingleBatchFrame() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        when(messageRepository.insert(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<Message> result = chatService.sendMessages("conv-1", userId, List.of("one", "two", "three"));
+
+        assertEquals(3, result.size());
+        assertEquals(otherUserId, result.get(0).getRecipientId());
+        assertTrue(result.get(0).getCreatedAt().isBefore(result.get(2).getCreatedAt()));
+        verify(messageRepository, times(1)).insert(anyList());
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(conversationUpdateCoalescer, times(1)).recordMessage(eq("conv-1"), eq("three"), any(LocalDateTime.class));
+        verify(unreadCounterService, times(1)).recordMessages(eq("conv-1"), any(ConversationMembership.class), eq(userId), eq(3));
+        verify(fanoutService, times(1)).publish(any(ConversationMembership.class), eq(userId), eq("/topic/conversations/conv-1/batch"), eq("/queue/messages/batch"), any());
+    }
+
+    @Test
+    void getMessagesBefore_withCursor_shouldUseKeysetQueryAndClampSize() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        Message older = new Message();
+        older.setId("65f000000000000000000001");
+        when(messageRepository.findSliceByConversationIdAndDeletedFalseAndIdLessThanOrderByIdDesc(
+                eq("conv-1"), eq("65f000000000000000000002"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(older)));
+
+        var result = chatService.getMessagesBefore("conv-1", "65f000000000000000000002", 500);
+
+        assertEquals(1, result.getNumberOfElements());
+        verify(messageRepository).findSliceByConversationIdAndDeletedFalseAndIdLessThanOrderByIdDesc(
+                eq("conv-1"), eq("65f000000000000000000002"), argThat(p -> p.getPageSize() == 100));
+        verify(messageRepository, never()).count();
+    }
+
+    @Test
+    void getMessagesBefore_whenLiveHistoryExhausted_shouldContinueIntoArchive() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(userId, otherUserId), System.currentTimeMillis(), true));
+        Message live = new Message();
+        live.setId("65f000000000000000000005");
+        Message archived = new Message();
+        archived.setId("65f000000000000000000001");
+        when(messageRepository.findSliceByConversationIdAndDeletedFalseOrderByIdDesc(eq("conv-1"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(live)));
+        when(archiveService.readBefore("conv-1", "65f000000000000000000005", 2)).thenReturn(List.of(archived));
+
+        var result = chatService.getMessagesBefore("conv-1", null, 2);
+
+        assertEquals(List.of(live, archived), result.getContent());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void getMessages_forNeverArchivedConversation_shouldNotQueryArchive() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        when(messageRepository.findByConversationIdAndDeletedFalseOrderByIdDesc(eq("conv-1"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(new Message())));
+
+        var result = chatService.getMessages("conv-1", 0, 20);
+
+        assertEquals(1, result.getNumberOfElements());
+        verifyNoInteractions(archiveService);
+    }
+
+    @Test
+    void sendMessage_withSeenClientMessageId_shouldReturnOriginalWithoutWriting() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        Message original = new Message();
+        original.setId("msg-1");
+        original.setConversationId("conv-1");
+        original.setSenderId(userId);
+        original.setClientMessageId("c-1");
+        when(dedupeCache.find(userId, "c-1")).thenReturn("msg-1");
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(original));
+
+        Message result = chatService.sendMessage("conv-1", userId, "hello", "c-1");
+
+        assertSame(original, result);
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(conversationUpdateCoalescer, never()).recordMessage(anyString(), anyString(), any());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        verifyNoInteractions(fanoutService);
+    }
+
+    @Test
+    void sendMessage_whenConcurrentRetryWinsInsert_shouldReturnStoredMessage() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        Message stored = new Message();
+        stored.setId("msg-1");
+        stored.setConversationId("conv-1");
+        stored.setSenderId(userId);
+        when(messageRepository.save(any(Message.class))).thenThrow(new DuplicateKeyException("E11000"));
+        when(messageRepository.findBySenderIdAndClientMessageId(userId, "c-1")).thenReturn(Optional.of(stored));
+
+        Message result = chatService.sendMessage("conv-1", userId, "hello", "c-1");
+
+        assertSame(stored, result);
+        verify(dedupeCache, never()).remember(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void sendMessage_withNewClientMessageId_shouldInsertWithoutLookup() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
+            Message m = inv.getArgument(0);
+            m.setId("msg-1");
+            return m;
+        });
+
+        chatService.sendMessage("conv-1", userId, "hello", "c-1");
+
+        verify(messageRepository, never()).findBySenderIdAndClientMessageId(anyString(), anyString());
+        verify(dedupeCache).remember(userId, "c-1", "msg-1");
+    }
+
+    @Test
+    void sendMessage_withClientMessageIdFromOtherConversation_shouldReject() {
+        when(membershipCache.get("conv-2")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        Message original = new Message();
+        original.setId("msg-1");
+        original.setConversationId("conv-1");
+        original.setSenderId(userId);
+        when(dedupeCache.find(userId, "c-1")).thenReturn("msg-1");
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(original));
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.sendMessage("conv-2", userId, "hello", "c-1"));
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void reactToMessage_shouldBroadcastDeltaWithNewCount() {
+        Message msg = new Message();
+        msg.setId("msg-1");
+        msg.setConversationId("conv-1");
+        Message updated = new Message();
+        updated.setId("msg-1");
+        updated.setConversationId("conv-1");
+        updated.setReactionCounts(Map.of("👍", 2));
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(msg));
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(userId, otherUserId), System.currentTimeMillis()));
+        when(messageRepository.addReaction("msg-1", userId, "👍")).thenReturn(updated);
+
+        chatService.reactToMessage("msg-1", userId, "👍", true);
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/conversations/conv-1/deltas"),
+                argThat((MessageDelta d) -> d.type() == MessageDelta.Type.REACTION_ADDED && d.count() == 2));
+        verify(revisionService).bump("conv-1");
+    }
+
+    @Test
+    void editMessage_byNonSender_shouldThrow() {
+        Message msg = new Message();
+        msg.setId("msg-1");
+        msg.setConversationId("conv-1");
+        when(messageRepository.findById("msg-1")).thenReturn(Optional.of(msg));
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of(userId, otherUserId), System.currentTimeMillis()));
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.editMessage("msg-1", otherUserId, "changed"));
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
 }
@@ -0,0 +1,129 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.archive.MessageArchiveService;
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationExportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private MessageArchiveService archiveService;
+
+    private ConversationExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ConversationExportService(mongoTemplate, membershipCache, archiveService, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    void export_asTxt_shouldWriteOneLinePerMessage() throws Exception {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of("user-1"), 0L));
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class))).thenReturn(Stream.of(message("hi"), message("there")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.export("conv-1", ConversationExportService.Format.TXT, out);
+
+        assertEquals(2, count);
+        assertEquals("[2026-01-02 03:04] user-1: hi\n[2026-01-02 03:04] user-1: there\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_forArchivedConversation_shouldWriteArchivedHistoryFirst() throws Exception {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of("user-1"), 0L, true));
+        Message old = message("old", "65f000000000000000000001");
+        Message live = message("new", "65f000000000000000000002");
+        doAnswer(inv -> {
+            MessageArchiveService.SegmentVisitor visitor = inv.getArgument(1);
+            // Two overlapping segments left behind by an interrupted retention run.
+            visitor.visit(List.of(old));
+            visitor.visit(List.of(old));
+            return null;
+        }).when(archiveService).forEachSegment(eq("conv-1"), any());
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class))).thenReturn(Stream.of(live));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.export("conv-1", ConversationExportService.Format.TXT, out);
+
+        assertEquals(2, count);
+        assertEquals("[2026-01-02 03:04] user-1: old\n[2026-01-02 03:04] user-1: new\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_acrossSeveralArchiveSegments_shouldStreamEverySegmentThenLiveMessages() throws Exception {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of("user-1"), 0L, true));
+        doAnswer(inv -> {
+            MessageArchiveService.SegmentVisitor visitor = inv.getArgument(1);
+            visitor.visit(List.of(message("a", "65f000000000000000000001"), message("b", "65f000000000000000000002")));
+            visitor.visit(List.of(message("c", "65f000000000000000000003")));
+            visitor.visit(List.of(message("d", "65f000000000000000000004"), message("e", "65f000000000000000000005")));
+            return null;
+        }).when(archiveService).forEachSegment(eq("conv-1"), any());
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class)))
+                .thenReturn(Stream.of(message("f", "65f000000000000000000006")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.export("conv-1", ConversationExportService.Format.NDJSON, out);
+
+        assertEquals(6, count);
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> bodies = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return mapper.readTree(line).get("body").asText();
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+        assertEquals(List.of("a", "b", "c", "d", "e", "f"), bodies);
+    }
+
+    @Test
+    void export_withUnknownFormat_shouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ConversationExportService.Format.parse("xml"));
+    }
+
+    private static Message message(String body) {
+        return message(body, null);
+    }
+
+    private static Message message(String body, String id) {
+        Message m = new Message();
+        m.setId(id);
+        m.setConversationId("conv-1");
+        m.setSenderId("user-1");
+        m.setBody(body);
+        m.setCreatedAt(LocalDateTime.of(2026, 1, 2, 3, 4));
+        return m;
+    }
+}
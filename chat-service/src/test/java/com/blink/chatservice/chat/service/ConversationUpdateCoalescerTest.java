@@ -0,0 +1,108 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationUpdateCoalescerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private BulkOperations bulkOperations;
+    @Mock
+    private InboxService inboxService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConversationUpdateCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new ConversationUpdateCoalescer(mongoTemplate, cacheManager, inboxService, meterRegistry, 2);
+    }
+
+    @Test
+    void flush_shouldMergeUpdatesPerConversationIntoOneBulkCall() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class)).thenReturn(bulkOperations);
+        LocalDateTime now = LocalDateTime.now();
+
+        coalescer.recordMessage("conv-1", "first", now);
+        coalescer.recordMessage("conv-1", "second", now.plusSeconds(1));
+        coalescer.recordMessage("conv-2", "other", now);
+        assertEquals(2, coalescer.getPendingCount());
+
+        coalescer.flush();
+
+        verify(mongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+        verify(inboxService).applyActivity(argThat(batch -> batch.size() == 2
+                && batch.get("conv-1").preview().equals("second")));
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    void flush_shouldNeverMoveTimestampsBackwards() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class)).thenReturn(bulkOperations);
+        LocalDateTime at = LocalDateTime.now();
+
+        coalescer.recordMessage("conv-1", "hello", at);
+        coalescer.flush();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).updateOne(query.capture(), update.capture());
+        // A delayed flush from another replica only matches while its message is still the newest...
+        assertEquals(new Document("$not", new Document("$gte", at)), query.getValue().getQueryObject().get("lastMessageAt"));
+        // ...and the timestamps only ever move forward.
+        Document max = (Document) update.getValue().getUpdateObject().get("$max");
+        assertEquals(at, max.get("lastMessageAt"));
+        assertEquals(at, max.get("updatedAt"));
+    }
+
+    @Test
+    void flush_whenBulkFails_shouldKeepUpdatesForNextWindow() {
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Conversation.class))).thenThrow(new RuntimeException("mongo down"));
+
+        coalescer.recordMessage("conv-1", "hello", LocalDateTime.now());
+        coalescer.flush();
+
+        assertEquals(1, coalescer.getPendingCount());
+        verifyNoInteractions(inboxService);
+    }
+
+    @Test
+    void recordMessage_whenBufferFull_shouldDropNewConversationsWithoutFlushing() {
+        LocalDateTime now = LocalDateTime.now();
+        coalescer.recordMessage("conv-1", "a", now);
+        coalescer.recordMessage("conv-2", "b", now);
+
+        coalescer.recordMessage("conv-3", "c", now);
+        coalescer.recordMessage("conv-1", "newer", now.plusSeconds(1));
+
+        assertEquals(2, coalescer.getPendingCount());
+        assertEquals(1.0, meterRegistry.get("chat.conversation.updates.dropped").counter().count());
+        verifyNoInteractions(mongoTemplate);
+    }
+}
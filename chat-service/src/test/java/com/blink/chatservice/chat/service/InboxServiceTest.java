@@ -0,0 +1,67 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import com.blink.chatservice.chat.entity.InboxEntry;
+import com.blink.chatservice.chat.repository.ConversationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboxServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private InboxService inboxService;
+
+    @Test
+    void list_shouldBackfillOlderConversationsEvenIfSomeEntriesAlreadyExist() {
+        // A group join created one entry before the first listing; the marker is still missing.
+        when(mongoTemplate.exists(any(Query.class), eq(InboxService.BACKFILL_COLLECTION))).thenReturn(false);
+        when(conversationRepository.findByParticipantsContainingOrderByUpdatedAtDesc("me"))
+                .thenReturn(List.of(conversation("conv-1"), conversation("conv-2")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class)).thenReturn(bulkOperations);
+
+        inboxService.list("me", null, 30);
+
+        verify(bulkOperations, times(2)).upsert(any(Query.class), argThat((Update u) -> u.getUpdateObject().containsKey("$setOnInsert")));
+        verify(bulkOperations).execute();
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(InboxService.BACKFILL_COLLECTION));
+    }
+
+    @Test
+    void list_whenAlreadyBackfilled_shouldNotReadConversations() {
+        when(mongoTemplate.exists(any(Query.class), eq(InboxService.BACKFILL_COLLECTION))).thenReturn(true);
+
+        inboxService.list("me", null, 30);
+
+        verifyNoInteractions(conversationRepository);
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(InboxEntry.class));
+    }
+
+    private static Conversation conversation(String id) {
+        Conversation conv = new Conversation();
+        conv.setId(id);
+        return conv;
+    }
+}
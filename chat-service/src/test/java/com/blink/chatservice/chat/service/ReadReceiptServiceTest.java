@@ -0,0 +1,100 @@
+package com.blink.chatservice.chat.service;
+
+import com.blink.chatservice.chat.entity.Message;
+import com.blink.chatservice.chat.membership.ConversationMembership;
+import com.blink.chatservice.chat.membership.ConversationMembershipCache;
+import com.blink.chatservice.chat.model.ConversationType;
+import com.blink.chatservice.websocket.dto.ReadReceiptBatch;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadReceiptServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private ReadReceiptService readReceiptService;
+
+    private final String messageId = new ObjectId().toHexString();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void markRead_shouldAdvanceMarkAndBatchReceiptsPerConversation() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.GROUP, Set.of("user-1", "user-2"), 0L));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        when(mongoTemplate.count(any(Query.class), eq(Message.class))).thenReturn(2L);
+
+        long remaining = readReceiptService.markRead("conv-1", "user-1", messageId);
+        readReceiptService.markRead("conv-1", "user-2", messageId);
+        readReceiptService.flushReceipts();
+
+        assertEquals(2L, remaining);
+        // Advance + conditional counter reset, for each of the two acks.
+        verify(redisTemplate, times(4)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("chat:read:conv-1", "chat:unread:user-1")),
+                eq("user-1"), eq(messageId), eq("conv-1"), eq("2"));
+        verify(mongoTemplate, times(2)).count(argThat((Query q) -> q.getLimit() > 0), eq(Message.class));
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(Message.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/conversations/conv-1/receipts"),
+                argThat((ReadReceiptBatch b) -> b.receipts().size() == 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void markRead_shouldNotMoveMarkBackwards() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of("user-1", "user-2"), 0L));
+        // The script saw a newer mark and left it alone.
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        readReceiptService.markRead("conv-1", "user-1", messageId);
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void markRead_whenNotMember_shouldThrow() {
+        when(membershipCache.get("conv-1")).thenReturn(new ConversationMembership(ConversationType.DIRECT, Set.of("user-2", "user-3"), 0L));
+
+        assertThrows(IllegalArgumentException.class, () -> readReceiptService.markRead("conv-1", "user-1", messageId));
+    }
+}
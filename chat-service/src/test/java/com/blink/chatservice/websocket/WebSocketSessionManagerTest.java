@@ -0,0 +1,68 @@
+package com.blink.chatservice.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketSessionManagerTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final WebSocketSessionManager manager = new WebSocketSessionManager(new SimpleMeterRegistry(), 1000, 8);
+
+    @Test
+    void userIndex_shouldTrackEverySessionOfAUser() {
+        manager.register("s1", "u1", 0);
+        manager.register("s2", "u1", 0);
+        manager.register("s3", "u2", 0);
+
+        assertEquals(List.of("s1", "s2"), manager.sessionsOf("u1"));
+        assertEquals("u2", manager.userOf("s3"));
+        assertEquals(2, manager.getConnectedUserCount());
+
+        manager.unregister("s1");
+        assertEquals(List.of("s2"), manager.sessionsOf("u1"));
+        assertTrue(manager.isConnected("u1"));
+
+        manager.unregister("s2");
+        assertFalse(manager.isConnected("u1"));
+        assertEquals(0, manager.sessionCountOf("u1"));
+        assertEquals(1, manager.getActiveSessionCount());
+    }
+
+    @Test
+    void sweep_shouldOnlyEvictSessionsOlderThanThreshold() {
+        long start = 1_000 * HOUR;
+        manager.register("old", "u1", start);
+        manager.register("fresh", "u1", start + 12 * HOUR);
+
+        manager.evictStaleSessions(start + 23 * HOUR);
+        assertEquals(2, manager.getActiveSessionCount());
+
+        manager.evictStaleSessions(start + 25 * HOUR);
+        assertNull(manager.userOf("old"));
+        assertEquals(List.of("fresh"), manager.sessionsOf("u1"));
+
+        manager.evictStaleSessions(start + 37 * HOUR);
+        assertEquals(0, manager.getActiveSessionCount());
+        assertFalse(manager.isConnected("u1"));
+    }
+
+    @Test
+    void fullRegistry_shouldRejectUntilStaleSessionsExpire() {
+        WebSocketSessionManager small = new WebSocketSessionManager(new SimpleMeterRegistry(), 2, 4);
+        long start = 1_000 * HOUR;
+        small.register("s1", "u1", start);
+        small.register("s2", "u2", start);
+
+        assertFalse(small.register("s3", "u3", start + HOUR));
+        assertTrue(small.register("s3", "u3", start + 25 * HOUR));
+        assertEquals(1, small.getActiveSessionCount());
+    }
+}
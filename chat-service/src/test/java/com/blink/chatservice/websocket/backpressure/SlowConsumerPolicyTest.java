@@ -0,0 +1,168 @@
+package com.blink.chatservice.websocket.backpressure;
+
+import com.blink.chatservice.websocket.config.SlowConsumerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlowConsumerPolicyTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final WebSocketSession session = mock(WebSocketSession.class);
+    private SlowConsumerPolicy policy;
+    private SlowConsumerPolicy.SessionBacklog backlog;
+
+    @BeforeEach
+    void setUp() {
+        SlowConsumerConfig config = new SlowConsumerConfig();
+        config.setDropAt(2);
+        config.setDigestAt(4);
+        config.setDisconnectAt(8);
+        config.setMaxHeld(3);
+        policy = new SlowConsumerPolicy(config, outbound, registry);
+        outbound.subscribe(sent::add);
+        when(session.getId()).thenReturn("s1");
+        backlog = policy.register(session);
+    }
+
+    @Test
+    void healthySession_shouldPassEverything() {
+        Message<byte[]> typing = frame("/topic/conversations/c1/typing", "{}");
+
+        assertSame(typing, policy.preSend(typing, null));
+        assertEquals(1, backlog.pending.get());
+    }
+
+    @Test
+    void dropTier_shouldShedLowPriorityFramesOnly() {
+        backlog.pending.set(2);
+
+        assertNull(policy.preSend(frame("/user/queue/presence", "{}"), null));
+        Message<byte[]> message = frame("/topic/conversations/c1", "{}");
+        assertSame(message, policy.preSend(message, null));
+        assertEquals(1.0, registry.get("chat.ws.slow_consumer.actions").tag("tier", "drop").counter().count());
+    }
+
+    @Test
+    void digestTier_shouldHoldMessagesAndFlushThemAsOneArray() {
+        connect("true");
+        backlog.pending.set(4);
+        assertNull(policy.preSend(frame("/topic/conversations/c1", "{\"id\":1}"), null));
+        assertNull(policy.preSend(frame("/topic/conversations/c1", "{\"id\":2}"), null));
+
+        policy.flushDigests();
+        assertEquals(0, sent.size(), "still backed up, nothing flushed");
+
+        backlog.pending.set(0);
+        policy.flushDigests();
+
+        assertEquals(1, sent.size());
+        StompHeaderAccessor digest = StompHeaderAccessor.wrap(sent.get(0));
+        assertEquals("2", digest.getFirstNativeHeader(SlowConsumerPolicy.DIGEST_HEADER));
+        assertEquals("[{\"id\":1},{\"id\":2}]", new String((byte[]) sent.get(0).getPayload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void digestFrame_shouldReadBackAsTheHeldMessages() throws Exception {
+        connect("true");
+        backlog.pending.set(4);
+        for (int i = 1; i <= 3; i++) {
+            policy.preSend(frame("/user/queue/messages", "{\"id\":\"m" + i + "\",\"body\":\"hi " + i + "\"}"), null);
+        }
+        backlog.pending.set(0);
+        policy.flushDigests();
+
+        Message<?> digest = sent.get(0);
+        int count = Integer.parseInt(StompHeaderAccessor.wrap(digest).getFirstNativeHeader(SlowConsumerPolicy.DIGEST_HEADER));
+        JsonNode messages = new ObjectMapper().readTree((byte[]) digest.getPayload());
+        assertTrue(messages.isArray());
+        assertEquals(count, messages.size());
+        assertEquals(3, messages.size());
+        assertEquals("m1", messages.get(0).get("id").asText());
+        assertEquals("hi 3", messages.get(2).get("body").asText());
+    }
+
+    @Test
+    void digestTier_withoutOptIn_shouldKeepSendingSingleFrames() {
+        connect(null);
+        backlog.pending.set(4);
+        Message<byte[]> message = frame("/topic/conversations/c1", "{\"id\":1}");
+
+        assertSame(message, policy.preSend(message, null));
+        policy.flushDigests();
+        assertEquals(0, sent.size());
+    }
+
+    @Test
+    void disconnectTier_shouldCloseSessionOnce() throws Exception {
+        backlog.pending.set(8);
+
+        assertNull(policy.preSend(frame("/topic/video/u1/signal", "{}"), null));
+        assertNull(policy.preSend(frame("/topic/video/u1/signal", "{}"), null));
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1.0, registry.get("chat.ws.slow_consumer.actions").tag("tier", "disconnect").counter().count());
+    }
+
+    @Test
+    void classify_shouldSeparateEphemeralMessageAndCriticalFrames() {
+        assertEquals(SlowConsumerPolicy.Priority.LOW, classify("/topic/conversations/c1/receipts"));
+        assertEquals(SlowConsumerPolicy.Priority.LOW, classify("/user/queue/presence"));
+        assertEquals(SlowConsumerPolicy.Priority.MESSAGE, classify("/user/queue/messages"));
+        assertEquals(SlowConsumerPolicy.Priority.CRITICAL, classify("/user/queue/conversations/new"));
+        assertEquals(SlowConsumerPolicy.Priority.CRITICAL, classify("/topic/conversations/c1/deltas"));
+        assertEquals(SlowConsumerPolicy.Priority.CRITICAL, classify("/topic/video/u1/signal"));
+    }
+
+    private void connect(String acceptDigest) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        if (acceptDigest != null) accessor.setNativeHeader(SlowConsumerPolicy.ACCEPT_DIGEST_HEADER, acceptDigest);
+        policy.connectNegotiation().preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private static SlowConsumerPolicy.Priority classify(String destination) {
+        return SlowConsumerPolicy.classify(StompHeaderAccessor.wrap(frame(destination, "{}")));
+    }
+
+    // Frames as the broker hands them to the outbound channel: user destinations are already resolved
+    // to the session's queue, with the subscribed destination in simpOrigDestination.
+    private static Message<byte[]> frame(String destination, String json) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-" + destination);
+        if (destination.startsWith("/user/")) {
+            accessor.setDestination(destination.substring("/user".length()) + "-users1");
+            accessor.setHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, destination);
+        } else {
+            accessor.setDestination(destination);
+        }
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
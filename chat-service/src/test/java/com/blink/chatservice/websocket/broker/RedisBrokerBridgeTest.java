@@ -0,0 +1,132 @@
+package com.blink.chatservice.websocket.broker;
+
+import com.blink.chatservice.websocket.config.BrokerConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Two nodes, each with a real embedded simple broker, joined by an in-memory stand-in for Redis pub/sub.
+class RedisBrokerBridgeTest {
+
+    private static final String CHANNEL = "chat:broker:relay";
+
+    private final List<RedisBrokerBridge> bridges = new ArrayList<>();
+    private final AtomicInteger published = new AtomicInteger();
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        // Redis delivers every publish to every subscriber, the publisher included.
+        doAnswer(inv -> {
+            published.incrementAndGet();
+            byte[] channel = inv.getArgument(0, String.class).getBytes(StandardCharsets.UTF_8);
+            byte[] body = inv.getArgument(1, String.class).getBytes(StandardCharsets.UTF_8);
+            List.copyOf(bridges).forEach(b -> b.onMessage(new DefaultMessage(channel, body), null));
+            return 1L;
+        }).when(redis).convertAndSend(anyString(), anyString());
+
+        nodeA = new Node("node-a", redis);
+        nodeB = new Node("node-b", redis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.broker.stop();
+        nodeB.broker.stop();
+    }
+
+    @Test
+    void topicSendOnOneNode_shouldReachSubscriberOnOtherNodeExactlyOnce() {
+        nodeB.subscribe("session-1", "/topic/conversations/c1");
+        nodeB.delivered.clear(); // CONNECT_ACK
+
+        nodeA.brokerChannel.send(message("/topic/conversations/c1", "hello"));
+
+        assertEquals(1, nodeB.delivered.size());
+        assertEquals("hello", new String((byte[]) nodeB.delivered.get(0).getPayload(), StandardCharsets.UTF_8));
+        assertEquals(0, nodeA.delivered.size());
+        // Replayed messages are not published again, so there is no echo loop.
+        assertEquals(1, published.get());
+        assertEquals(1.0, nodeA.meterRegistry.get("chat.broker.relay.published").tag("channel", "topic").counter().count());
+        assertEquals(1.0, nodeB.meterRegistry.get("chat.broker.relay.received").tag("channel", "topic").counter().count());
+        assertEquals(0.0, nodeA.meterRegistry.get("chat.broker.relay.received").tag("channel", "topic").counter().count());
+    }
+
+    @Test
+    void userSend_shouldUseUserChannelAndReachOtherNode() {
+        nodeA.brokerChannel.send(message("/user/u1/queue/messages", "dm"));
+
+        assertEquals(1.0, nodeA.meterRegistry.get("chat.broker.relay.published").tag("channel", "user").counter().count());
+        assertEquals(1.0, nodeB.meterRegistry.get("chat.broker.relay.received").tag("channel", "user").counter().count());
+    }
+
+    @Test
+    void resolvedSessionDestinations_shouldStayLocal() {
+        nodeA.brokerChannel.send(message("/queue/messages-usersession-1", "direct"));
+
+        assertEquals(0, published.get());
+    }
+
+    private static Message<byte[]> message(String destination, String body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private class Node {
+        final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        final ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        final SimpleBrokerMessageHandler broker;
+        final List<Message<?>> delivered = new ArrayList<>();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        Node(String nodeId, StringRedisTemplate redis) {
+            BrokerConfig config = new BrokerConfig();
+            config.setNodeId(nodeId);
+            config.setRedisChannel(CHANNEL);
+            RedisBrokerBridge bridge = new RedisBrokerBridge(redis, mock(RedisMessageListenerContainer.class), brokerChannel, new ObjectMapper(), config, meterRegistry);
+            bridges.add(bridge);
+            brokerChannel.addInterceptor(bridge);
+
+            clientOutbound.subscribe(delivered::add);
+            broker = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(), clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+            broker.start();
+        }
+
+        void subscribe(String sessionId, String destination) {
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(sessionId);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId("sub-1");
+            accessor.setDestination(destination);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.blink.chatservice.websocket.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StompPayloadCodecTest {
+
+    private static final byte[] JSON = "{\"conversationId\":\"conv-1\",\"body\":\"hi\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StompPayloadCodec codec = new StompPayloadCodec(objectMapper);
+
+    @Test
+    void sessionThatNegotiatedCbor_shouldReceiveBinaryCborFrames() throws Exception {
+        codec.preSend(connect("s1", "cbor", new HashMap<>()), null);
+
+        Message<?> out = codec.preSend(messageFor("s1"), null);
+
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(out);
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, headers.getContentType());
+        assertEquals("cbor", headers.getFirstNativeHeader(StompPayloadCodec.ENCODING_HEADER));
+        JsonNode decoded = new CBORMapper().readTree((byte[]) out.getPayload());
+        assertEquals(objectMapper.readTree(JSON), decoded);
+    }
+
+    @Test
+    void defaultSession_shouldStayJson() {
+        codec.preSend(connect("s1", null, new HashMap<>()), null);
+        Message<?> original = messageFor("s1");
+
+        assertSame(original, codec.preSend(original, null));
+    }
+
+    @Test
+    void sockJsSession_shouldIgnoreCborRequest() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(StompPayloadCodec.SOCKJS_ATTRIBUTE, true);
+        codec.preSend(connect("s1", "cbor", attributes), null);
+
+        assertEquals(StompPayloadCodec.Encoding.JSON, codec.encodingOf("s1"));
+    }
+
+    @Test
+    void disconnect_shouldForgetSession() {
+        codec.preSend(connect("s1", "cbor", new HashMap<>()), null);
+        StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        disconnect.setSessionId("s1");
+        codec.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), null);
+
+        assertEquals(StompPayloadCodec.Encoding.JSON, codec.encodingOf("s1"));
+    }
+
+    @Test
+    void broadcastToSeveralCborSessions_shouldShareOneEncoding() {
+        codec.preSend(connect("s1", "cbor", new HashMap<>()), null);
+        codec.preSend(connect("s2", "cbor", new HashMap<>()), null);
+
+        Object first = codec.preSend(messageFor("s1"), null).getPayload();
+        Object second = codec.preSend(messageFor("s2"), null).getPayload();
+
+        assertSame(first, second);
+        assertArrayEquals((byte[]) first, (byte[]) second);
+    }
+
+    private static Message<byte[]> connect(String sessionId, String encoding, Map<String, Object> attributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(attributes);
+        if (encoding != null) accessor.setNativeHeader(StompPayloadCodec.ENCODING_HEADER, encoding);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> messageFor(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/conversations/conv-1");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(JSON, accessor.getMessageHeaders());
+    }
+}
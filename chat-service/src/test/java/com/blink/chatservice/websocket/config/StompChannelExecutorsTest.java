@@ -0,0 +1,52 @@
+package com.blink.chatservice.websocket.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StompChannelExecutorsTest {
+
+    @Test
+    void saturatedPool_shouldCountRejectionAndRunOnCaller() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Executor executor = StompChannelExecutors.create("inbound", new ChannelExecutorConfig.Pool(1, 1, 1), registry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+            assertEquals(1.0, registry.get("chat.ws.channel.queue.size").tag("channel", "inbound").gauge().value());
+            assertEquals(1.0, registry.get("chat.ws.channel.active").tag("channel", "inbound").gauge().value());
+
+            AtomicReference<Thread> ranOn = new AtomicReference<>();
+            executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+            assertSame(Thread.currentThread(), ranOn.get());
+            assertEquals(1.0, registry.get("chat.ws.channel.rejected").tag("channel", "inbound").counter().count());
+        } finally {
+            release.countDown();
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
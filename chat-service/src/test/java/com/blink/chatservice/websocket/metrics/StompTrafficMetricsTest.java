@@ -0,0 +1,91 @@
+package com.blink.chatservice.websocket.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.blink.chatservice.websocket.codec.StompPayloadCodec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StompTrafficMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StompTrafficMetrics metrics = new StompTrafficMetrics(registry);
+
+    @Test
+    void messageFrames_shouldBeCountedPerDestinationTemplate() {
+        metrics.preSend(frame("s1", "/topic/conversations/conv-1/typing", 100, false), null);
+        metrics.preSend(frame("s2", "/topic/conversations/conv-2/typing", 50, false), null);
+
+        String destination = "/topic/conversations/{id}/typing";
+        assertEquals(2.0, registry.get("chat.ws.outbound.frames").tag("destination", destination).counter().count());
+        assertEquals(150.0, registry.get("chat.ws.outbound.bytes").tag("destination", destination).counter().count());
+        assertEquals(2, registry.get("chat.ws.outbound.frame.size").tag("destination", destination).summary().count());
+    }
+
+    @Test
+    void cborFrames_shouldBeTaggedSeparately() {
+        metrics.preSend(userFrame("s1", "/user/queue/messages", 40, true), null);
+
+        assertEquals(40.0, registry.get("chat.ws.outbound.bytes")
+                .tag("destination", "/user/queue/messages")
+                .tag("encoding", "cbor")
+                .counter().count());
+    }
+
+    @Test
+    void userFrames_shouldBeTaggedBySubscribedDestinationNotSession() {
+        metrics.preSend(userFrame("s1", "/user/queue/messages", 10, false), null);
+        metrics.preSend(userFrame("s2", "/user/queue/messages", 10, false), null);
+
+        assertEquals(2.0, registry.get("chat.ws.outbound.frames").tag("destination", "/user/queue/messages").counter().count());
+        assertEquals(1, registry.find("chat.ws.outbound.frames").counters().size());
+    }
+
+    @Test
+    void disconnect_shouldRecordSessionTotal() {
+        metrics.preSend(frame("s1", "/topic/presence", 30, false), null);
+        metrics.preSend(frame("s1", "/topic/presence", 70, false), null);
+        StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        disconnect.setSessionId("s1");
+        metrics.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), null);
+
+        var summary = registry.get("chat.ws.session.outbound.bytes").summary();
+        assertEquals(1, summary.count());
+        assertEquals(100.0, summary.totalAmount());
+    }
+
+    @Test
+    void template_shouldOnlyReplaceIdSegmentsUnderTopics() {
+        assertEquals("/topic/user/{id}/actions", StompTrafficMetrics.template("/topic/user/u-1/actions"));
+        assertEquals("/topic/video/{id}/signal", StompTrafficMetrics.template("/topic/video/u-1/signal"));
+        assertEquals("/topic/presence", StompTrafficMetrics.template("/topic/presence"));
+        assertEquals("/user/queue/conversations/new", StompTrafficMetrics.template("/user/queue/conversations/new"));
+        assertEquals("other", StompTrafficMetrics.template("/queue/messages-user5f2c1a9e"));
+        assertEquals("unknown", StompTrafficMetrics.template(null));
+    }
+
+    private static Message<byte[]> frame(String sessionId, String destination, int size, boolean cbor) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        if (cbor) accessor.setNativeHeader(StompPayloadCodec.ENCODING_HEADER, "cbor");
+        return MessageBuilder.createMessage(new byte[size], accessor.getMessageHeaders());
+    }
+
+    // What the broker hands the outbound channel for convertAndSendToUser: the session-resolved queue,
+    // with the subscribed destination carried alongside.
+    private static Message<byte[]> userFrame(String sessionId, String subscribed, int size, boolean cbor) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(subscribed.substring("/user".length()) + "-user" + sessionId);
+        accessor.setHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, subscribed);
+        if (cbor) accessor.setNativeHeader(StompPayloadCodec.ENCODING_HEADER, "cbor");
+        return MessageBuilder.createMessage(new byte[size], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,130 @@
+package com.blink.chatservice.websocket.replay;
+
+import com.blink.chatservice.websocket.config.ReplayConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MessageReplayBufferTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ReplayConfig config = new ReplayConfig();
+    private final MessageReplayBuffer buffer = new MessageReplayBuffer(redis, config, new SimpleMeterRegistry());
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void userFrame_shouldBeRecordedAndNumbered() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(List.of(RecordId.of("1700000000000-0"), true));
+
+        Message<?> out = buffer.preSend(frame("/user/u1/queue/messages", null), null);
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(out);
+        assertEquals("1700000000000-0", headers.getFirstNativeHeader(MessageReplayBuffer.SEQ_HEADER));
+        verify(redis, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void presenceAndNoticeFrames_shouldNotBeRecorded() {
+        Message<byte[]> presence = frame("/user/u1/queue/presence", null);
+        Message<byte[]> newConversation = frame("/user/u1/queue/conversations/new", null);
+
+        assertSame(presence, buffer.preSend(presence, null));
+        assertSame(newConversation, buffer.preSend(newConversation, null));
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void topicAndAlreadyNumberedFrames_shouldPassThrough() {
+        Message<byte[]> topic = frame("/topic/conversations/c1", null);
+        Message<byte[]> bridged = frame("/user/u1/queue/messages", "1-0");
+
+        assertSame(topic, buffer.preSend(topic, null));
+        assertSame(bridged, buffer.preSend(bridged, null));
+        verify(redis, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisFailure_shouldStillDeliverWithoutSeq() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenThrow(new IllegalStateException("down"));
+
+        Message<?> out = buffer.preSend(frame("/user/u1/queue/messages", null), null);
+
+        assertNull(SimpMessageHeaderAccessor.wrap(out).getFirstNativeHeader(MessageReplayBuffer.SEQ_HEADER));
+    }
+
+    @Test
+    void since_shouldReturnGapForDestinationAndReportCompleteness() {
+        stubRange(List.of(
+                record("5-0", "/queue/messages", "old"),
+                record("6-0", "/queue/messages", "a"),
+                record("7-0", "/queue/conversations/new", "other"),
+                record("8-0", "/queue/messages", "b")));
+
+        MessageReplayBuffer.ReplayWindow window = buffer.since("u1", "5-0", "/queue/messages");
+
+        assertTrue(window.complete());
+        assertEquals(List.of("6-0", "8-0"), window.frames().stream().map(MessageReplayBuffer.Frame::seq).toList());
+        assertEquals("a", new String(window.frames().get(0).payload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void since_whenLastSeqWasTrimmed_shouldBeIncomplete() {
+        stubRange(List.of(record("9-0", "/queue/messages", "late")));
+
+        MessageReplayBuffer.ReplayWindow window = buffer.since("u1", "5-0", "/queue/messages");
+
+        assertFalse(window.complete());
+        assertEquals(1, window.frames().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRange(List<MapRecord<String, Object, Object>> records) {
+        StreamOperations<String, Object, Object> ops = mock(StreamOperations.class);
+        when(redis.opsForStream()).thenReturn(ops);
+        when(ops.range(eq(MessageReplayBuffer.KEY_PREFIX + "u1"), any(Range.class), any(Limit.class))).thenReturn(records);
+    }
+
+    private static MapRecord<String, Object, Object> record(String id, String destination, String payload) {
+        Map<Object, Object> fields = Map.of("d", destination, "p", payload);
+        return StreamRecords.newRecord().in(MessageReplayBuffer.KEY_PREFIX + "u1").withId(RecordId.of(id)).ofMap(fields);
+    }
+
+    private static Message<byte[]> frame(String destination, String seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        if (seq != null) accessor.setNativeHeader(MessageReplayBuffer.SEQ_HEADER, seq);
+        return MessageBuilder.createMessage("{}".getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
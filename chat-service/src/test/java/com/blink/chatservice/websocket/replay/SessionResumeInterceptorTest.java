@@ -0,0 +1,99 @@
+package com.blink.chatservice.websocket.replay;
+
+import com.blink.chatservice.websocket.config.ReplayConfig;
+import com.blink.chatservice.websocket.dto.ResumeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SessionResumeInterceptorTest {
+
+    private final MessageReplayBuffer buffer = mock(MessageReplayBuffer.class);
+    private final ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MessageHandler userHandler = mock(UserDestinationMessageHandler.class);
+    private final SessionResumeInterceptor interceptor = new SessionResumeInterceptor(
+            buffer, outbound, objectMapper, new ReplayConfig(), new SimpleMeterRegistry());
+
+    SessionResumeInterceptorTest() {
+        outbound.subscribe(sent::add);
+    }
+
+    @Test
+    void subscribeAfterResume_shouldReplayGapToThatSubscription() throws Exception {
+        when(buffer.since("u1", "5-0", "/queue/messages")).thenReturn(new MessageReplayBuffer.ReplayWindow(
+                List.of(new MessageReplayBuffer.Frame("6-0", null, "{\"id\":\"m6\"}".getBytes(StandardCharsets.UTF_8))), true));
+
+        interceptor.preSend(connect("s1", "5-0"), null);
+        subscribe("s1", "sub-r", SessionResumeInterceptor.RESULT_DESTINATION);
+        subscribe("s1", "sub-m", "/user/queue/messages");
+
+        assertEquals(2, sent.size());
+        StompHeaderAccessor replayed = StompHeaderAccessor.wrap(sent.get(0));
+        assertEquals("sub-m", replayed.getSubscriptionId());
+        assertEquals("6-0", replayed.getFirstNativeHeader(MessageReplayBuffer.SEQ_HEADER));
+        assertEquals("true", replayed.getFirstNativeHeader(SessionResumeInterceptor.REPLAYED_HEADER));
+
+        ResumeResult result = objectMapper.readValue((byte[]) sent.get(1).getPayload(), ResumeResult.class);
+        assertEquals(new ResumeResult("/user/queue/messages", 1, true), result);
+        assertEquals("sub-r", StompHeaderAccessor.wrap(sent.get(1)).getSubscriptionId());
+    }
+
+    @Test
+    void resultBeforeResultSubscription_shouldBeHeldUntilClientSubscribes() {
+        when(buffer.since("u1", "5-0", "/queue/messages"))
+                .thenReturn(new MessageReplayBuffer.ReplayWindow(List.of(), false));
+
+        interceptor.preSend(connect("s1", "5-0"), null);
+        subscribe("s1", "sub-m", "/user/queue/messages");
+        assertTrue(sent.isEmpty());
+
+        subscribe("s1", "sub-r", SessionResumeInterceptor.RESULT_DESTINATION);
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void connectWithoutResume_shouldNotReplay() {
+        interceptor.preSend(connect("s1", null), null);
+        subscribe("s1", "sub-m", "/user/queue/messages");
+
+        verifyNoInteractions(buffer);
+        assertTrue(sent.isEmpty());
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setUser(new UsernamePasswordAuthenticationToken("u1", null, null));
+        interceptor.afterMessageHandled(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()),
+                null, userHandler, null);
+    }
+
+    private static Message<byte[]> connect(String sessionId, String resume) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        if (resume != null) accessor.setNativeHeader(SessionResumeInterceptor.RESUME_HEADER, resume);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,70 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.chat.entity.Conversation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceInterestCacheTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private PresenceInterestCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PresenceInterestCache(mongoTemplate, listenerContainer, 200);
+    }
+
+    @Test
+    void newConversation_shouldDropCachedPeersOfItsMembers() {
+        when(mongoTemplate.find(any(Query.class), eq(Conversation.class)))
+                .thenReturn(List.of(conversation("c1", "alice", "bob")))
+                .thenReturn(List.of(conversation("c1", "alice", "bob"), conversation("c2", "alice", "carol")));
+        assertEquals(Set.of("bob"), cache.peersOf("alice"));
+
+        when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(conversation("c2", "alice", "carol"));
+        cache.invalidateConversation("c2");
+
+        assertEquals(Set.of("bob", "carol"), cache.peersOf("alice"));
+    }
+
+    @Test
+    void memberLeaving_shouldDropEntriesBuiltFromThatConversation() {
+        when(mongoTemplate.find(any(Query.class), eq(Conversation.class)))
+                .thenReturn(List.of(conversation("c1", "alice", "bob")))
+                .thenReturn(List.of());
+        cache.peersOf("bob");
+
+        // bob is no longer a participant, so only the cached conversation ids can find his entry.
+        when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(conversation("c1", "alice"));
+        cache.invalidateConversation("c1");
+
+        assertEquals(Set.of(), cache.peersOf("bob"));
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(Conversation.class));
+    }
+
+    private static Conversation conversation(String id, String... participants) {
+        Conversation conv = new Conversation();
+        conv.setId(id);
+        conv.setParticipants(Set.of(participants));
+        return conv;
+    }
+}
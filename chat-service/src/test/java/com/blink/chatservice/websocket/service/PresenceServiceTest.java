@@ -0,0 +1,132 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.user.entity.User;
+import com.blink.chatservice.websocket.dto.PresenceDiff;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+    private final PresenceInterestCache interest = mock(PresenceInterestCache.class);
+    private final PresenceService presence = new PresenceService(redis, mongo, messaging, interest, 60_000);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void closingOneOfSeveralTabs_shouldKeepUserOnline() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        presence.sessionDisconnected("u1", "s1");
+        presence.flushDiffs();
+        presence.flushLastSeen();
+
+        verifyNoInteractions(messaging, interest, mongo);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void transitions_shouldReachPeersAsOneDiffPerInterval() {
+        // u1 and u2 come online and u3 goes offline; v1 shares a conversation with all three.
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        when(interest.peersOf(anyString())).thenReturn(Set.of("v1"));
+        presence.sessionConnected("u1", "s1");
+        presence.sessionConnected("u2", "s2");
+        presence.sessionDisconnected("u3", "s3");
+        verifyNoInteractions(messaging);
+
+        when(redis.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of((double) System.currentTimeMillis() + 10_000));
+        presence.flushDiffs();
+
+        ArgumentCaptor<Object> diff = ArgumentCaptor.forClass(Object.class);
+        verify(messaging, times(1)).convertAndSendToUser(eq("v1"), eq("/queue/presence"), diff.capture());
+        PresenceDiff sent = (PresenceDiff) diff.getValue();
+        assertEquals(Set.of("u1", "u2"), Set.copyOf(sent.online()));
+        assertEquals(List.of("u3"), sent.offline());
+
+        // Nothing pending, nothing sent.
+        presence.flushDiffs();
+        verify(messaging, times(1)).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void offlinePeers_shouldNotReceiveDiffs() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        when(interest.peersOf("u1")).thenReturn(Set.of("v1"));
+        presence.sessionConnected("u1", "s1");
+
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(Collections.singletonList(null));
+        presence.flushDiffs();
+
+        verifyNoInteractions(messaging);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lastSessionClosing_shouldBatchLastSeen() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        BulkOperations ops = mock(BulkOperations.class);
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(ops);
+
+        presence.sessionDisconnected("u1", "s1");
+        presence.sessionDisconnected("u2", "s2");
+        verifyNoInteractions(mongo);
+
+        presence.flushLastSeen();
+
+        verify(ops, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(ops).execute();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_shouldOnlyTouchSessionsWithTraffic() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        presence.sessionConnected("u1", "s1");
+
+        presence.refresh();
+        verify(redis, never()).executePipelined(any(RedisCallback.class));
+
+        presence.touch("s1");
+        presence.touch("unknown");
+        presence.refresh();
+        verify(redis, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlineAmong_shouldIgnoreExpiredScores() {
+        long now = System.currentTimeMillis();
+        when(redis.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of((double) now + 10_000, (double) now - 10_000, "missing"));
+
+        assertEquals(Set.of("u1"), presence.onlineAmong(List.of("u1", "u2", "u3")));
+    }
+}
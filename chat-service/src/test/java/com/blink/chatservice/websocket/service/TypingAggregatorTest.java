@@ -0,0 +1,130 @@
+package com.blink.chatservice.websocket.service;
+
+import com.blink.chatservice.websocket.dto.TypingSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TypingAggregatorTest {
+
+    private static final String TOPIC = "/topic/conversations/conv-1/typing";
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    // Stand-in for the shared chat:typing:conv-1 ZSET.
+    private final Map<String, Double> typers = new HashMap<>();
+    private TypingAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(zSetOperations.add(anyString(), anyString(), anyDouble()))
+                .thenAnswer(inv -> typers.put(inv.getArgument(1), inv.getArgument(2)) == null);
+        lenient().when(zSetOperations.remove(anyString(), any()))
+                .thenAnswer(inv -> typers.remove((String) inv.getArgument(1)) != null ? 1L : 0L);
+        lenient().when(zSetOperations.removeRangeByScore(anyString(), anyDouble(), anyDouble())).thenAnswer(inv -> {
+            double max = inv.getArgument(2);
+            int before = typers.size();
+            typers.values().removeIf(expiry -> expiry <= max);
+            return (long) (before - typers.size());
+        });
+        lenient().when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenAnswer(inv -> {
+            double min = inv.getArgument(1);
+            return typers.entrySet().stream().filter(e -> e.getValue() >= min).map(Map.Entry::getKey).collect(Collectors.toSet());
+        });
+        aggregator = new TypingAggregator(messagingTemplate, redisTemplate, 6000);
+    }
+
+    @Test
+    void keystrokesFromSeveralUsers_shouldProduceOneCombinedFrame() {
+        for (int i = 0; i < 10; i++) {
+            aggregator.update("conv-1", "user-2", true);
+            aggregator.update("conv-1", "user-1", true);
+        }
+
+        aggregator.flush(System.currentTimeMillis());
+        aggregator.flush(System.currentTimeMillis());
+
+        verify(messagingTemplate, times(1)).convertAndSend(TOPIC, new TypingSnapshot("conv-1", List.of("user-1", "user-2")));
+        // Repeated keystrokes inside half the TTL never reach Redis.
+        verify(zSetOperations, times(2)).add(anyString(), anyString(), anyDouble());
+    }
+
+    @Test
+    void refreshWithoutChange_shouldNotResend() {
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.flush(System.currentTimeMillis());
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.flush(System.currentTimeMillis());
+
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void typersOnAnotherReplica_shouldAppearInThisReplicasSnapshot() {
+        TypingAggregator otherNode = new TypingAggregator(messagingTemplate, redisTemplate, 6000);
+        otherNode.update("conv-1", "user-2", true);
+        otherNode.flush(System.currentTimeMillis());
+
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.flush(System.currentTimeMillis());
+
+        verify(messagingTemplate).convertAndSend(TOPIC, new TypingSnapshot("conv-1", List.of("user-2")));
+        verify(messagingTemplate).convertAndSend(TOPIC, new TypingSnapshot("conv-1", List.of("user-1", "user-2")));
+    }
+
+    @Test
+    void staleEntries_shouldExpireAndClearSnapshot() {
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.flush(System.currentTimeMillis());
+
+        aggregator.flush(System.currentTimeMillis() + 10_000);
+
+        verify(messagingTemplate).convertAndSend(TOPIC, new TypingSnapshot("conv-1", List.of()));
+        verify(zSetOperations).removeRangeByScore(eq(TypingAggregator.KEY_PREFIX + "conv-1"), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void stopForUnknownUser_shouldSendNothing() {
+        aggregator.update("conv-1", "user-1", false);
+        aggregator.flush(System.currentTimeMillis());
+
+        verify(messagingTemplate, never()).convertAndSend(eq(TOPIC), any(Object.class));
+    }
+
+    @Test
+    void redisFailure_shouldBeRetriedOnTheNextKeystroke() {
+        when(zSetOperations.add(anyString(), anyString(), anyDouble()))
+                .thenThrow(new IllegalStateException("down"))
+                .thenReturn(true);
+
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.update("conv-1", "user-1", true);
+        aggregator.flush(System.currentTimeMillis());
+
+        verify(zSetOperations, times(2)).add(anyString(), anyString(), anyDouble());
+        verify(messagingTemplate).convertAndSend(eq(TOPIC), any(Object.class));
+    }
+}
@@ -76,6 +76,23 @@ export async function fetchOnlineUserIds(token) {
   return Array.isArray(data) ? data : [];
 }
 
+// Presence: conversation peers online right now; the starting point for /user/queue/presence diffs
+export async function fetchOnlinePeerIds(token) {
+  const res = await fetch(`${API_BASE}/users/me/peers/online`, {
+    headers: {
+      Authorization: `Bearer ${token}`,
+    },
+  });
+
+  if (!res.ok) {
+    const errorText = await res.text().catch(() => 'Failed to fetch presence');
+    throw new Error(errorText || 'Failed to fetch presence');
+  }
+
+  const data = await res.json();
+  return Array.isArray(data) ? data : [];
+}
+
 // Check specific user online status
 export async function checkUserOnline(token, userId) {
   const res = await fetch(`${API_BASE}/users/${encodeURIComponent(userId)}/online`, {
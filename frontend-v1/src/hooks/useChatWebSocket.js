@@ -157,12 +157,13 @@ export function useChatWebSocket({
           }
         });
 
-        // Presence updates from /topic/presence
-        client.subscribe('/topic/presence', (frame) => {
+        // Presence diffs for conversation peers from /user/queue/presence
+        client.subscribe('/user/queue/presence', (frame) => {
           if (!onPresenceRef.current) return;
           try {
-            const payload = JSON.parse(frame.body);
-            onPresenceRef.current(payload);
+            const diff = JSON.parse(frame.body);
+            (diff.online || []).forEach(userId => onPresenceRef.current({ userId, online: true }));
+            (diff.offline || []).forEach(userId => onPresenceRef.current({ userId, online: false }));
           } catch (error) {
             console.error('Error parsing presence event:', error);
           }
@@ -13,7 +13,7 @@ import {
   leaveGroup,
 } from '../api/chatApi';
 import { getAiConversation, chatWithAi, summarizeConversation } from '../api/aiApi';
-import { searchUsers, fetchOnlineUserIds, getUserInfo, getUserProfile } from '../api/userApi';
+import { searchUsers, fetchOnlinePeerIds, getUserInfo, getUserProfile } from '../api/userApi';
 
 // Layout Components
 import Sidebar from '../components/layout/Sidebar';
@@ -42,7 +42,7 @@ export default function ChatPage() {
     activeTab, openTabs, setActiveTab, closeTab,
     onlineUserIds, setOnlineUserIds,
     connected, setConnected,
-    typingUsers, setTypingUser,
+    typingUsers, setTypingUsers,
     loadingMessages, setLoadingMessages,
     loadingConversations, setLoadingConversations,
     selectedConversation
@@ -158,16 +158,15 @@ export default function ChatPage() {
     fetchGroups(token).then(setGroups).catch(() => { });
   }, [token, setConversations, setLoadingConversations]);
 
-  // Presence Polling
+  // Presence: online peers on every (re)connect, then /user/queue/presence diffs keep it current
   useEffect(() => {
-    if (!token) return;
-    const poll = async () => {
-      try { setOnlineUserIds(await fetchOnlineUserIds(token)); } catch { }
-    };
-    poll();
-    const interval = setInterval(poll, 15000);
-    return () => clearInterval(interval);
-  }, [token, setOnlineUserIds]);
+    if (!token || !connected) return;
+    let cancelled = false;
+    fetchOnlinePeerIds(token)
+      .then(ids => { if (!cancelled) setOnlineUserIds(ids); })
+      .catch(() => { });
+    return () => { cancelled = true; };
+  }, [token, connected, setOnlineUserIds]);
 
   // Messages Loading for Active Tab
   useEffect(() => {
@@ -292,13 +291,17 @@ export default function ChatPage() {
     onConversationCreated: (conv) => conv?.id && addConversation(conv),
     onPresence: (evt) => {
       const id = String(evt.userId);
+      // One diff applies several ids in a row, so read the store rather than this render's copy
+      const current = useChatStore.getState().onlineUserIds;
       setOnlineUserIds(evt.online
-        ? [...onlineUserIds.filter(uid => uid !== id), id]
-        : onlineUserIds.filter(uid => uid !== id)
+        ? [...current.filter(uid => uid !== id), id]
+        : current.filter(uid => uid !== id)
       );
     },
     onTyping: (evt) => {
-      if (evt.conversationId && evt.userId) setTypingUser(evt.conversationId, evt.userId, evt.typing);
+      if (evt.conversationId && Array.isArray(evt.userIds)) {
+        setTypingUsers(evt.conversationId, evt.userIds.filter(uid => uid !== user?.id));
+      }
     },
     onConnectionChange: setConnected
   });
@@ -92,15 +92,9 @@ export const useChatStore = create((set, get) => ({
     setConnected: (status) => set({ connected: status }),
     setOnlineUserIds: (ids) => set({ onlineUserIds: ids }),
 
-    setTypingUser: (conversationId, userId, isTyping) => set((state) => {
+    setTypingUsers: (conversationId, userIds) => set((state) => {
         const newTyping = new Map(state.typingUsers);
-        const oldSet = newTyping.get(conversationId) || new Set();
-        const newSet = new Set(oldSet);
-
-        if (isTyping) newSet.add(userId);
-        else newSet.delete(userId);
-
-        newTyping.set(conversationId, newSet);
+        newTyping.set(conversationId, new Set(userIds));
         return { typingUsers: newTyping };
     }),
 
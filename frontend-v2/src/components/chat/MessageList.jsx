@@ -62,7 +62,7 @@ function DateSeparator({ label }) {
 // ─── Main component ──────────────────────────────────────────────────
 export function MessageList({ conversationId }) {
     const { user } = useAuthStore();
-    const { optimisticMessages, removeOptimisticMessage, addTypingUser, removeTypingUser, liveMessages, addLiveMessage } = useChatStore();
+    const { optimisticMessages, removeOptimisticMessage, setTypingUsers, liveMessages, addLiveMessage } = useChatStore();
     const messagesEndRef = useRef(null);
     const topSentinelRef = useRef(null);
     const scrollContainerRef = useRef(null);
@@ -212,12 +212,9 @@ export function MessageList({ conversationId }) {
                     const typingTopic = `/topic/conversations/${conversationId}/typing`;
                     typingSubscription = socketService.subscribe(typingTopic, (payload) => {
                         if (!isMounted) return;
-                        if (payload && payload.userId !== user.id) {
-                            if (payload.typing === true) {
-                                addTypingUser(conversationId, payload.userId);
-                            } else {
-                                removeTypingUser(conversationId, payload.userId);
-                            }
+                        // The server sends one snapshot of everyone typing per interval.
+                        if (payload && Array.isArray(payload.userIds)) {
+                            setTypingUsers(conversationId, payload.userIds.filter((id) => id !== user.id));
                         }
                     });
                 }
@@ -237,7 +234,7 @@ export function MessageList({ conversationId }) {
             if (subscription) subscription.unsubscribe();
             if (typingSubscription) typingSubscription.unsubscribe();
         };
-    }, [conversationId, removeOptimisticMessage, user?.id, addLiveMessage, addTypingUser, removeTypingUser]);
+    }, [conversationId, removeOptimisticMessage, user?.id, addLiveMessage, setTypingUsers]);
 
     const parseMessages = (page) => {
         if (!page) return [];
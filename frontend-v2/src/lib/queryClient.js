@@ -26,6 +26,7 @@ export const queryKeys = {
     user: (userId) => ['user', userId],
     users: (query) => ['users', query],
     onlineUsers: ['onlineUsers'],
+    onlinePeers: ['onlinePeers'],
 
 
     conversations: ['conversations'],
@@ -1,10 +1,31 @@
 import { useEffect } from 'react';
 import { useQueryClient } from '@tanstack/react-query';
 import { socketService } from '../services/socketService';
+import { userService } from '../services/userService';
+import { useSocketStore } from '../stores/socketStore';
+import { queryKeys } from './queryClient';
 import { reportErrorOnce } from './reportError';
 
+function applyPresence(queryClient, userId, online) {
+    // Update the individual user cache entry
+    const cached = queryClient.getQueryData(['user', userId]);
+    if (cached) {
+        queryClient.setQueryData(['user', userId], { ...cached, online });
+    }
+
+    // Also update any batch-fetched user lists that contain this user
+    queryClient.setQueriesData(
+        { queryKey: ['users-batch'], exact: false },
+        (oldData) => {
+            if (!Array.isArray(oldData)) return oldData;
+            return oldData.map(u => (u?.id === userId ? { ...u, online } : u));
+        }
+    );
+}
+
 export function usePresence(enabled = true) {
     const queryClient = useQueryClient();
+    const status = useSocketStore((s) => s.status);
 
     useEffect(() => {
         if (!enabled) return;
@@ -17,28 +38,11 @@ export function usePresence(enabled = true) {
                 await socketService.connect();
                 if (!isMounted) return;
 
-                subscription = socketService.subscribe('/topic/presence', (event) => {
-                    if (!event || !event.userId) return;
-
-                    // Update the individual user cache entry
-                    const cached = queryClient.getQueryData(['user', event.userId]);
-                    if (cached) {
-                        queryClient.setQueryData(['user', event.userId], {
-                            ...cached,
-                            online: event.online,
-                        });
-                    }
-
-                    // Also update any batch-fetched user lists that contain this user
-                    queryClient.setQueriesData(
-                        { queryKey: ['users-batch'], exact: false },
-                        (oldData) => {
-                            if (!Array.isArray(oldData)) return oldData;
-                            return oldData.map(u =>
-                                u?.id === event.userId ? { ...u, online: event.online } : u
-                            );
-                        }
-                    );
+                // Batched diffs covering only this user's conversation peers
+                subscription = socketService.subscribe('/user/queue/presence', (diff) => {
+                    if (!diff) return;
+                    (diff.online || []).forEach(userId => applyPresence(queryClient, userId, true));
+                    (diff.offline || []).forEach(userId => applyPresence(queryClient, userId, false));
                 });
             } catch (error) {
                 reportErrorOnce('presence-realtime', error, 'Real-time updates unavailable');
@@ -54,4 +58,26 @@ export function usePresence(enabled = true) {
             }
         };
     }, [queryClient, enabled]);
+
+    // Diffs only describe changes, so (re)load the online peer set on every (re)connect:
+    // anything that changed while the socket was down is picked up here.
+    useEffect(() => {
+        if (!enabled || status !== 'connected') return;
+        let cancelled = false;
+
+        userService.listOnlinePeers()
+            .then((ids) => {
+                if (cancelled) return;
+                const online = new Set(Array.isArray(ids) ? ids : []);
+                const previous = queryClient.getQueryData(queryKeys.onlinePeers) || [];
+                previous.filter(id => !online.has(id)).forEach(id => applyPresence(queryClient, id, false));
+                online.forEach(id => applyPresence(queryClient, id, true));
+                queryClient.setQueryData(queryKeys.onlinePeers, [...online]);
+            })
+            .catch((error) => reportErrorOnce('presence-peers', error, 'Could not load who is online'));
+
+        return () => {
+            cancelled = true;
+        };
+    }, [queryClient, enabled, status]);
 }
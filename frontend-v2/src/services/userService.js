@@ -32,6 +32,12 @@ export const userService = {
         return data;
     },
 
+    // Conversation peers online right now; the starting point for /user/queue/presence diffs
+    listOnlinePeers: async () => {
+        const { data } = await apiClient.get('/api/v1/users/me/peers/online');
+        return data;
+    },
+
     listOnlineUsers: async () => {
         const { data } = await apiClient.get('/api/v1/users/online');
         return data;
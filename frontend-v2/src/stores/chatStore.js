@@ -15,28 +15,14 @@ export const useChatStore = create(
 
             clearActiveConversation: () => set({ activeConversationId: null }),
 
-            addTypingUser: (conversationId, userId) =>
-                set((state) => {
-                    const current = state.typingUsers[conversationId] || [];
-                    if (current.includes(userId)) return state;
-                    return {
-                        typingUsers: {
-                            ...state.typingUsers,
-                            [conversationId]: [...current, userId],
-                        },
-                    };
-                }),
-
-            removeTypingUser: (conversationId, userId) =>
-                set((state) => {
-                    const current = state.typingUsers[conversationId] || [];
-                    return {
-                        typingUsers: {
-                            ...state.typingUsers,
-                            [conversationId]: current.filter((id) => id !== userId),
-                        },
-                    };
-                }),
+            // Replaces the conversation's typers with the server's combined snapshot.
+            setTypingUsers: (conversationId, userIds) =>
+                set((state) => ({
+                    typingUsers: {
+                        ...state.typingUsers,
+                        [conversationId]: userIds,
+                    },
+                })),
 
             addOptimisticMessage: (tempId, message, destination = null, payload = null) =>
                 set((state) => {